@@ -0,0 +1,192 @@
+package com.fathzer.skycrapper;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.sat4j.specs.ContradictionException;
+import org.sat4j.specs.TimeoutException;
+
+/**
+ * Solves all the puzzles of a file, or a shard of them.
+ * <p>The input file contains one puzzle per line, in the format accepted by {@link InputDataParser}.
+ * Empty lines and lines starting with # are ignored; the other lines are the records, numbered from 0.</p>
+ * <p>With the <code>--shard i/k</code> option (0 &lt;= i &lt; k), only the records whose index modulo k is i are solved.
+ * Running the k shards, in as many processes or machines as needed, solves every record exactly once.
+ * Their outputs can then be reassembled with {@link BatchMerge}.</p>
+ * <p>Each record produces one output line, written and flushed as soon as the record is solved:
+ * <br><code>index&lt;TAB&gt;SOLVED&lt;TAB&gt;values of the solution, row by row, separated by spaces</code>
+ * <br><code>index&lt;TAB&gt;UNSAT</code> if the puzzle has no solution, followed by <code>&lt;TAB&gt;reason</code> when the clues
+ * are rejected by {@link ClueChecker}
+ * <br><code>index&lt;TAB&gt;ERROR&lt;TAB&gt;message</code> if the record is not a valid puzzle, or if the grid is too large for the solver's memory budget</p>
+ * <p>The output file is its own checkpoint: with the <code>--resume</code> option, an existing output is kept
+ * (except a possibly incomplete last line) and the batch restarts after its last record.</p>
+ */
+public class Batch {
+    static final String SOLVED = "SOLVED";
+    static final String UNSAT = "UNSAT";
+    static final String ERROR = "ERROR";
+
+    public static void main(String[] args) throws IOException, ContradictionException, TimeoutException {
+        int shard = 0;
+        int shardCount = 1;
+        boolean resume = false;
+        final List<String> files = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            if ("--shard".equals(args[i]) && i + 1 < args.length) {
+                final String[] tokens = args[++i].split("/");
+                try {
+                    shard = Integer.parseInt(tokens[0]);
+                    shardCount = tokens.length == 2 ? Integer.parseInt(tokens[1]) : -1;
+                } catch (NumberFormatException e) {
+                    shardCount = -1;
+                }
+            } else if ("--resume".equals(args[i])) {
+                resume = true;
+            } else {
+                files.add(args[i]);
+            }
+        }
+        if (files.size() != 2 || shardCount < 1 || shard < 0 || shard >= shardCount) {
+            System.err.println("Usage: java [-Dlazy=true] [-Dtable=true] -cp skyscrapper-solver.jar " + Batch.class.getName()
+                    + " [--shard i/k] [--resume] inputFile outputFile");
+            System.exit(1);
+        }
+        run(Path.of(files.get(0)), Path.of(files.get(1)), shard, shardCount, resume);
+    }
+
+    /**
+     * Solves the records of a shard.
+     * @param input the input file
+     * @param output the output file
+     * @param shard the shard index (0 &lt;= shard &lt; shardCount)
+     * @param shardCount the number of shards
+     * @param resume true to keep the existing output and restart after its last record, false to overwrite it
+     * @throws IOException if a file can't be read or written
+     * @throws IllegalArgumentException if the existing output can't be resumed
+     */
+    static void run(Path input, Path output, int shard, int shardCount, boolean resume) throws IOException, ContradictionException, TimeoutException {
+        final int first = resume && Files.exists(output) ? getResumeIndex(output) : 0;
+        final InputDataParser parser = new InputDataParser();
+        try (BufferedReader reader = Files.newBufferedReader(input, StandardCharsets.UTF_8);
+                BufferedWriter writer = Files.newBufferedWriter(output, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                        first > 0 ? StandardOpenOption.APPEND : StandardOpenOption.TRUNCATE_EXISTING)) {
+            int index = 0;
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                line = line.trim();
+                if (!isRecord(line)) {
+                    continue;
+                }
+                if (index >= first && index % shardCount == shard) {
+                    writer.write(solve(parser, index, line));
+                    writer.newLine();
+                    writer.flush();
+                }
+                index++;
+            }
+        }
+    }
+
+    private static String solve(InputDataParser parser, int index, String line) throws ContradictionException, TimeoutException {
+        final InputData data;
+        try {
+            data = parser.parse(line);
+        } catch (IllegalArgumentException e) {
+            return index + "\t" + ERROR + "\t" + e.getMessage();
+        }
+        final ClueChecker.Reason reason = ClueChecker.check(data);
+        if (reason != null) {
+            return index + "\t" + UNSAT + "\t" + reason;
+        }
+        final int[][] solution;
+        try {
+            solution = Main.solve(data);
+        } catch (MemoryBudgetExceededException e) {
+            // The grid is too large for the memory budget
+            return index + "\t" + ERROR + "\t" + e.getMessage();
+        }
+        if (solution == null) {
+            return index + "\t" + UNSAT;
+        }
+        final StringBuilder result = new StringBuilder().append(index).append('\t').append(SOLVED).append('\t');
+        for (int[] row : solution) {
+            for (int value : row) {
+                result.append(value).append(' ');
+            }
+        }
+        result.setLength(result.length() - 1);
+        return result.toString();
+    }
+
+    /**
+     * Gets the index of the first record to solve when resuming an output.
+     * <br>If the last line of the output is incomplete (the process was killed while writing it), it is removed.
+     * @param output an existing output
+     * @return the index following the last record of the output (0 if the output contains no complete record)
+     * @throws IOException if the output can't be read or truncated
+     * @throws IllegalArgumentException if a line of the output is not a result line
+     */
+    static int getResumeIndex(Path output) throws IOException {
+        final byte[] content = Files.readAllBytes(output);
+        int end = content.length;
+        while (end > 0 && content[end - 1] != '\n') {
+            end--;
+        }
+        if (end < content.length) {
+            try (FileChannel channel = FileChannel.open(output, StandardOpenOption.WRITE)) {
+                channel.truncate(end);
+            }
+        }
+        final String complete = new String(content, 0, end, StandardCharsets.UTF_8);
+        int next = 0;
+        for (String line : complete.split("\n")) {
+            if (!line.isBlank()) {
+                next = getIndex(line) + 1;
+            }
+        }
+        return next;
+    }
+
+    /**
+     * Tests whether a trimmed line of an input file is a record.
+     * @param line a trimmed line
+     * @return false if the line is empty or a comment
+     */
+    static boolean isRecord(String line) {
+        return !line.isEmpty() && !line.startsWith("#");
+    }
+
+    /**
+     * Gets the record index of an output line.
+     * @param line an output line
+     * @return the record index
+     * @throws IllegalArgumentException if the line does not start with a record index
+     */
+    static int getIndex(String line) {
+        final int tab = line.indexOf('\t');
+        try {
+            return Integer.parseInt(tab < 0 ? line.trim() : line.substring(0, tab));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid result line: " + line, e);
+        }
+    }
+
+    /**
+     * Counts the records of an input file.
+     * @param input the input file
+     * @return the number of records
+     * @throws IOException if the file can't be read
+     */
+    static int countRecords(Path input) throws IOException {
+        try (var lines = Files.lines(input, StandardCharsets.UTF_8)) {
+            return (int) lines.map(String::trim).filter(Batch::isRecord).count();
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.fathzer.skycrapper;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Reassembles the outputs of the shards of a {@link Batch} in the original order of the records.
+ * <p>The arguments are the batch input file, followed by the shard outputs. The merged result is printed on the
+ * standard output, only if every record of the input file has exactly one result; otherwise, the missing or
+ * conflicting records are reported on the error output and the exit code is 1.</p>
+ */
+public class BatchMerge {
+    private static final int MAX_REPORTED = 10;
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: java -cp skyscrapper-solver.jar " + BatchMerge.class.getName() + " inputFile shardOutput...");
+            System.exit(1);
+        }
+        final List<Path> outputs = Arrays.stream(args).skip(1).map(Path::of).toList();
+        final List<String> merged;
+        try {
+            merged = merge(Batch.countRecords(Path.of(args[0])), outputs);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.exit(1);
+            return;
+        }
+        merged.forEach(System.out::println);
+    }
+
+    /**
+     * Merges shard outputs.
+     * @param recordCount the number of records of the batch input file
+     * @param outputs the shard outputs
+     * @return the result lines, ordered by record index
+     * @throws IOException if an output can't be read
+     * @throws IllegalArgumentException if a result line is invalid, if a record has no result or has different results
+     */
+    static List<String> merge(int recordCount, List<Path> outputs) throws IOException {
+        final String[] results = new String[recordCount];
+        final List<Integer> conflicts = new ArrayList<>();
+        for (Path output : outputs) {
+            for (String line : Files.readAllLines(output, StandardCharsets.UTF_8)) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                final int index = Batch.getIndex(line);
+                if (index < 0 || index >= recordCount) {
+                    throw new IllegalArgumentException("Record " + index + " in " + output + " is out of range [0, " + recordCount + "[");
+                }
+                if (results[index] != null && !results[index].equals(line)) {
+                    conflicts.add(index);
+                }
+                results[index] = line;
+            }
+        }
+        final List<Integer> missing = new ArrayList<>();
+        for (int i = 0; i < recordCount; i++) {
+            if (results[i] == null) {
+                missing.add(i);
+            }
+        }
+        if (!missing.isEmpty() || !conflicts.isEmpty()) {
+            throw new IllegalArgumentException("Incomplete merge: " + describe("missing", missing) + ", " + describe("conflicting", conflicts));
+        }
+        return Arrays.asList(results);
+    }
+
+    private static String describe(String what, List<Integer> indexes) {
+        final String shown = indexes.subList(0, Math.min(MAX_REPORTED, indexes.size())).toString();
+        return indexes.size() + " " + what + " record(s)" + (indexes.isEmpty() ? "" : " " + shown + (indexes.size() > MAX_REPORTED ? "..." : ""));
+    }
+}
@@ -0,0 +1,292 @@
+package com.fathzer.skycrapper;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+
+import org.sat4j.specs.ContradictionException;
+import org.sat4j.specs.TimeoutException;
+
+/**
+ * A latency/throughput benchmark that solves a whole corpus of puzzles with several solver configurations.
+ * <p>The only argument is the path of the corpus file. It contains one puzzle per line, in the format accepted by
+ * {@link InputDataParser}. Empty lines and lines starting with # are ignored.</p>
+ * <p>For each configuration, the latency percentiles of every puzzle resolution, the throughput, the peak heap usage
+ * (the highest total used heap, sampled every few milliseconds) and the time spent in garbage collection are printed
+ * on the standard output, in csv or json format.</p>
+ */
+public class Benchmark {
+    /**
+     * A solver configuration.
+     * @param name the configuration's name: a {@link SolverProfile} name, optionally followed by the cube option
+     * @param profile the solver's profile
+     * @param cube true to use the cube-and-conquer parallel solver with the common fork-join pool
+     */
+    record Configuration(String name, SolverProfile profile, boolean cube) {
+        private static final String CUBE = "cube";
+
+        /**
+         * Parses a configuration name.
+         * @param name the configuration's name
+         * @return a configuration
+         * @throws IllegalArgumentException if the name contains an unknown option
+         */
+        static Configuration parse(String name) {
+            final List<String> options = new ArrayList<>(Arrays.asList(name.split("\\+")));
+            final boolean cube = options.remove(CUBE);
+            final SolverProfile profile = options.isEmpty() ? SolverProfile.DEFAULT : SolverProfile.parse(String.join("+", options));
+            return new Configuration(name, profile, cube);
+        }
+
+        /**
+         * Solves a puzzle with this configuration.
+         * <br>As in {@link Main}, clue sets rejected by {@link ClueChecker} are not encoded.
+         * @param data the puzzle's clues
+         * @return the solution, null if the puzzle has no solution
+         */
+        int[][] solve(InputData data) throws ContradictionException, TimeoutException {
+            if (ClueChecker.check(data) != null) {
+                return null;
+            }
+            if (cube) {
+                return new CubeAndConquerSolver(() -> Main.newSolver(data, profile), ForkJoinPool.commonPool()).solve();
+            }
+            return Main.newSolver(data, profile).solve();
+        }
+    }
+
+    /**
+     * The outcome of the resolution of a corpus.
+     * @param solved the number of puzzles that have a solution
+     * @param refused the number of puzzles refused because they exceed the memory budget (see {@link MemoryBudgetExceededException})
+     */
+    record Counts(int solved, int refused) {
+    }
+
+    /**
+     * The result of a configuration.
+     * <br>Latencies are in microseconds, throughput in puzzles per second, heap in bytes and gc time in milliseconds.
+     */
+    record Result(String configuration, int puzzles, int solved, int refused, long p50, long p90, long p99, long max, long mean,
+            double throughput, long peakHeap, long gcTime) {
+    }
+
+    public static void main(String[] args) throws IOException, ContradictionException, TimeoutException {
+        if (args.length != 1) {
+            System.err.println("Usage: java [-Dconfigs=default,lazy,table] [-Dwarmup=1] [-DnbLoops=1] [-Dformat=csv|json] -cp skyscrapper-solver.jar "
+                    + Benchmark.class.getName() + " corpusFile");
+            System.exit(1);
+        }
+        final List<InputData> corpus = readCorpus(Path.of(args[0]));
+        final int warmup = Integer.getInteger("warmup", 1);
+        final int nbLoops = Integer.getInteger("nbLoops", 1);
+        final boolean json = "json".equals(System.getProperty("format", "csv"));
+
+        final List<Result> results = new ArrayList<>();
+        for (String name : System.getProperty("configs", "default,lazy,table").split(",")) {
+            final Configuration configuration = Configuration.parse(name.trim());
+            for (int i = 0; i < warmup; i++) {
+                solveAll(corpus, configuration, null, 0);
+            }
+            results.add(run(corpus, configuration, nbLoops));
+        }
+        if (json) {
+            printJson(results, System.out);
+        } else {
+            printCsv(results, System.out);
+        }
+    }
+
+    /**
+     * Reads a corpus file.
+     * @param path the file's path
+     * @return the puzzles of the file
+     * @throws IOException if the file can't be read
+     * @throws IllegalArgumentException if a line is not a valid puzzle
+     */
+    static List<InputData> readCorpus(Path path) throws IOException {
+        final InputDataParser parser = new InputDataParser();
+        return Files.readAllLines(path).stream().map(String::trim).filter(Batch::isRecord).map(parser::parse).toList();
+    }
+
+    private static Result run(List<InputData> corpus, Configuration configuration, int nbLoops) throws ContradictionException, TimeoutException {
+        System.gc();
+        final long gcStart = getGcTime();
+
+        final long[] latencies = new long[corpus.size() * nbLoops];
+        Counts counts = new Counts(0, 0);
+        final long elapsed;
+        final long peakHeap;
+        try (HeapSampler sampler = new HeapSampler()) {
+            final long start = System.nanoTime();
+            for (int i = 0; i < nbLoops; i++) {
+                counts = solveAll(corpus, configuration, latencies, i * corpus.size());
+            }
+            elapsed = System.nanoTime() - start;
+            peakHeap = sampler.getPeak();
+        }
+
+        final long gcTime = getGcTime() - gcStart;
+        Arrays.sort(latencies);
+        return new Result(configuration.name(), corpus.size(), counts.solved(), counts.refused(), toMicros(percentile(latencies, 50)), toMicros(percentile(latencies, 90)),
+                toMicros(percentile(latencies, 99)), toMicros(percentile(latencies, 100)), toMicros(Arrays.stream(latencies).sum() / Math.max(1, latencies.length)),
+                latencies.length * 1e9 / elapsed, peakHeap, gcTime);
+    }
+
+    /**
+     * A thread that periodically samples the total used heap, in order to get its peak during a run.
+     * <br>The peak usages of the heap pools can't be summed: each pool reaches its peak at a different time.
+     * A peak that lasts less than the sampling period may be missed.
+     */
+    private static final class HeapSampler implements AutoCloseable {
+        private static final long PERIOD_MS = 5;
+
+        private final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        private final Thread thread;
+        private volatile boolean stopped;
+        private volatile long peak;
+
+        private HeapSampler() {
+            sample();
+            thread = new Thread(this::run, "heap-sampler");
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        private void run() {
+            while (!stopped) {
+                sample();
+                try {
+                    Thread.sleep(PERIOD_MS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+
+        private void sample() {
+            // Only the sampler thread writes the peak once it is started
+            peak = Math.max(peak, memory.getHeapMemoryUsage().getUsed());
+        }
+
+        /**
+         * Gets the peak heap usage since the sampler was created.
+         * @return the highest sampled heap usage, in bytes
+         */
+        private long getPeak() {
+            return Math.max(peak, memory.getHeapMemoryUsage().getUsed());
+        }
+
+        @Override
+        public void close() {
+            stopped = true;
+            thread.interrupt();
+        }
+    }
+
+    /**
+     * Solves all the puzzles of a corpus.
+     * <br>Puzzles refused because of the memory budget don't stop the resolution; their latency is the time spent to refuse them.
+     * @param latencies an array where to store the latency, in nanoseconds, of each puzzle (null to not record them)
+     * @param offset the index in latencies of the first puzzle's latency
+     * @return the number of solved and refused puzzles
+     */
+    static Counts solveAll(List<InputData> corpus, Configuration configuration, long[] latencies, int offset)
+            throws ContradictionException, TimeoutException {
+        int solved = 0;
+        int refused = 0;
+        for (int i = 0; i < corpus.size(); i++) {
+            final long start = System.nanoTime();
+            try {
+                if (configuration.solve(corpus.get(i)) != null) {
+                    solved++;
+                }
+            } catch (MemoryBudgetExceededException e) {
+                refused++;
+            }
+            if (latencies != null) {
+                latencies[offset + i] = System.nanoTime() - start;
+            }
+        }
+        return new Counts(solved, refused);
+    }
+
+    /**
+     * Gets a percentile of sorted values using the nearest-rank method.
+     * @param sorted the values in ascending order
+     * @param percentile the percentile, in ]0, 100]
+     * @return the smallest value such that at least percentile % of the values are less or equal to it, 0 if there's no value
+     */
+    static long percentile(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        final int rank = (int) Math.ceil(percentile / 100 * sorted.length);
+        return sorted[Math.max(0, rank - 1)];
+    }
+
+    private static long toMicros(long nanos) {
+        return nanos / 1000;
+    }
+
+    private static long getGcTime() {
+        return ManagementFactory.getGarbageCollectorMXBeans().stream().mapToLong(GarbageCollectorMXBean::getCollectionTime).filter(t -> t > 0).sum();
+    }
+
+    static void printCsv(List<Result> results, PrintStream out) {
+        out.println("configuration,puzzles,solved,refused,p50_us,p90_us,p99_us,max_us,mean_us,throughput_per_s,peak_heap_bytes,gc_ms");
+        for (Result r : results) {
+            out.println(String.format(Locale.ROOT, "%s,%d,%d,%d,%d,%d,%d,%d,%d,%.2f,%d,%d", r.configuration(), r.puzzles(), r.solved(), r.refused(),
+                    r.p50(), r.p90(), r.p99(), r.max(), r.mean(), r.throughput(), r.peakHeap(), r.gcTime()));
+        }
+    }
+
+    static void printJson(List<Result> results, PrintStream out) {
+        out.println("[");
+        for (int i = 0; i < results.size(); i++) {
+            final Result r = results.get(i);
+            out.print(String.format(Locale.ROOT,
+                    "  {\"configuration\": %s, \"puzzles\": %d, \"solved\": %d, \"refused\": %d, \"p50_us\": %d, \"p90_us\": %d, \"p99_us\": %d, "
+                    + "\"max_us\": %d, \"mean_us\": %d, \"throughput_per_s\": %.2f, \"peak_heap_bytes\": %d, \"gc_ms\": %d}",
+                    toJsonString(r.configuration()), r.puzzles(), r.solved(), r.refused(), r.p50(), r.p90(), r.p99(), r.max(), r.mean(), r.throughput(), r.peakHeap(), r.gcTime()));
+            out.println(i < results.size() - 1 ? "," : "");
+        }
+        out.println("]");
+    }
+
+    /**
+     * Converts a string to a JSON string literal.
+     * @param value a string
+     * @return the string between double quotes, with quotes, backslashes and control characters escaped
+     */
+    static String toJsonString(String value) {
+        final StringBuilder result = new StringBuilder(value.length() + 2).append('"');
+        for (char c : value.toCharArray()) {
+            switch (c) {
+                case '"' -> result.append("\\\"");
+                case '\\' -> result.append("\\\\");
+                case '\n' -> result.append("\\n");
+                case '\r' -> result.append("\\r");
+                case '\t' -> result.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        result.append(String.format(Locale.ROOT, "\\u%04x", (int) c));
+                    } else {
+                        result.append(c);
+                    }
+                }
+            }
+        }
+        return result.append('"').toString();
+    }
+}
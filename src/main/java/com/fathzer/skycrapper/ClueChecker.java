@@ -0,0 +1,132 @@
+package com.fathzer.skycrapper;
+
+/**
+ * A fast check that rejects some clue sets that obviously have no solution, before paying the encoding and search costs.
+ * <p>The check uses only the immediate consequences of the clues:
+ * <ul>
+ * <li>A clue c allows at most N-c+1+d at distance d (0 for the first cell) from the clue.</li>
+ * <li>A clue 1 forces N in the first cell, a clue N forces 1..N in the line.</li>
+ * </ul>
+ * It does not allocate any memory and runs in O(N<sup>3</sup>). When it finds no contradiction, the clues may still have no solution.</p>
+ */
+public final class ClueChecker {
+    /** The reason why a clue set has no solution. */
+    public enum Reason {
+        /** Two opposite clues sum to more than N+1, or are both 1 in a grid larger than 1x1 */
+        OPPOSITE_CLUES,
+        /** Two clues force different values in the same cell */
+        CONFLICTING_CELL,
+        /** Two clues force the same value in two cells of the same row or column */
+        DUPLICATE_VALUE,
+        /** A clue forces, in a cell, a value that another clue forbids */
+        FORBIDDEN_VALUE,
+        /** No cell of a row or column can contain N */
+        NO_PLACE_FOR_MAX
+    }
+
+    private ClueChecker() {
+        super();
+    }
+
+    /**
+     * Checks a clue set.
+     * @param data the clues (0 = no clue)
+     * @return the reason why the clues have no solution, null if no contradiction was found
+     */
+    public static Reason check(InputData data) {
+        final int n = data.size();
+        for (int line = 0; line < n; line++) {
+            if (!areCompatible(n, data.left()[line], data.right()[line]) || !areCompatible(n, data.up()[line], data.down()[line])) {
+                return Reason.OPPOSITE_CLUES;
+            }
+        }
+        for (int row = 0; row < n; row++) {
+            for (int col = 0; col < n; col++) {
+                final int value = getForcedValue(data, row, col);
+                if (value < 0) {
+                    return Reason.CONFLICTING_CELL;
+                }
+                if (value > 0) {
+                    if (value > getMaxValue(data, row, col)) {
+                        return Reason.FORBIDDEN_VALUE;
+                    }
+                    for (int k = col + 1; k < n; k++) {
+                        if (getForcedValue(data, row, k) == value) {
+                            return Reason.DUPLICATE_VALUE;
+                        }
+                    }
+                    for (int k = row + 1; k < n; k++) {
+                        if (getForcedValue(data, k, col) == value) {
+                            return Reason.DUPLICATE_VALUE;
+                        }
+                    }
+                }
+            }
+        }
+        for (int line = 0; line < n; line++) {
+            if (!canContainMax(data, line, true) || !canContainMax(data, line, false)) {
+                return Reason.NO_PLACE_FOR_MAX;
+            }
+        }
+        return null;
+    }
+
+    private static boolean areCompatible(int n, int clueA, int clueB) {
+        if (clueA == 0 || clueB == 0) {
+            return true;
+        }
+        // N is visible from both sides, at position >= clueA-1 from the start and <= n-clueB
+        return clueA + clueB <= n + 1 && (n == 1 || clueA != 1 || clueB != 1);
+    }
+
+    /**
+     * Gets the value the clues force in a cell.
+     * @return the value, 0 if no value is forced, -1 if different values are forced
+     */
+    private static int getForcedValue(InputData data, int row, int col) {
+        final int n = data.size();
+        int value = 0;
+        value = merge(value, getForcedValue(n, data.left()[row], col));
+        value = merge(value, getForcedValue(n, data.right()[row], n - 1 - col));
+        value = merge(value, getForcedValue(n, data.up()[col], row));
+        return merge(value, getForcedValue(n, data.down()[col], n - 1 - row));
+    }
+
+    private static int getForcedValue(int n, int clue, int distance) {
+        if (clue == n) {
+            return distance + 1;
+        }
+        return clue == 1 && distance == 0 ? n : 0;
+    }
+
+    private static int merge(int value, int other) {
+        if (value == 0 || value == other) {
+            return other;
+        }
+        return other == 0 ? value : -1;
+    }
+
+    /** Gets the maximum value the clues allow in a cell. */
+    private static int getMaxValue(InputData data, int row, int col) {
+        final int n = data.size();
+        int max = n;
+        max = Math.min(max, getMaxValue(n, data.left()[row], col));
+        max = Math.min(max, getMaxValue(n, data.right()[row], n - 1 - col));
+        max = Math.min(max, getMaxValue(n, data.up()[col], row));
+        return Math.min(max, getMaxValue(n, data.down()[col], n - 1 - row));
+    }
+
+    private static int getMaxValue(int n, int clue, int distance) {
+        return clue == 0 ? n : n - clue + 1 + distance;
+    }
+
+    private static boolean canContainMax(InputData data, int line, boolean isRow) {
+        final int n = data.size();
+        for (int k = 0; k < n; k++) {
+            if (isRow ? getMaxValue(data, line, k) == n : getMaxValue(data, k, line) == n) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
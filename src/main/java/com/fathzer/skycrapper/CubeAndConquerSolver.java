@@ -0,0 +1,189 @@
+package com.fathzer.skycrapper;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Supplier;
+
+import org.sat4j.specs.ContradictionException;
+import org.sat4j.specs.TimeoutException;
+
+/**
+ * A parallel solver for large puzzles, based on the cube-and-conquer approach.
+ * <p>The problem is split in cubes: each cube assigns values to the first cells of the most constrained line of the grid
+ * (the one with the fewest candidate values, see {@link SkyscraperSolver#getCandidateValues()}).
+ * Together, the cubes cover every possible assignment of these cells.</p>
+ * <p>The cubes are then solved as assumptions by the threads of a {@link ForkJoinPool}. Each thread works on its own
+ * copy of the encoding, reused from one cube to the next. Idle threads steal the remaining cubes.
+ * The first solution found cancels the other searches.</p>
+ * <p>As every thread of the pool may hold a copy of the encoding, the {@link SkyscraperSolver#setMemoryBudget(long) memory budget}
+ * of the solvers returned by the factory is shared between them: each copy gets the budget divided by the pool's parallelism,
+ * and is downgraded or refused accordingly.</p>
+ */
+public class CubeAndConquerSolver {
+    /** The number of cubes to generate per thread of the pool, in order to balance the work between threads. */
+    private static final int CUBES_PER_THREAD = 8;
+
+    private final Supplier<SkyscraperSolver> factory;
+    private final ForkJoinPool pool;
+
+    /**
+     * Constructor.
+     * @param factory a supplier of solvers. Every call should return a new solver, with the same clues, initial values and settings.
+     * Its memory budget is the one of all the copies together.
+     * @param pool the pool that will solve the cubes
+     */
+    public CubeAndConquerSolver(Supplier<SkyscraperSolver> factory, ForkJoinPool pool) {
+        this.factory = factory;
+        this.pool = pool;
+    }
+
+    /**
+     * Solves the problem.
+     * @return the solution, null if the problem has no solution
+     * @throws TimeoutException if a cube's resolution exceeded the solver's timeout
+     */
+    public int[][] solve() throws TimeoutException {
+        final int[][][] cubes = getCubes(factory.get(), pool.getParallelism() * CUBES_PER_THREAD);
+        final Map<Thread, SkyscraperSolver> solvers = new ConcurrentHashMap<>();
+        final CompletableFuture<int[][]> result = new CompletableFuture<>();
+        final List<ForkJoinTask<?>> tasks = new ArrayList<>(cubes.length);
+        for (int[][] cube : cubes) {
+            tasks.add(ForkJoinTask.adapt(() -> conquer(cube, solvers, result)));
+        }
+        pool.execute(() -> {
+            try {
+                ForkJoinTask.invokeAll(tasks);
+                // No cube has a solution (does nothing if a solution was found)
+                result.complete(null);
+            } catch (RuntimeException e) {
+                // Does nothing if a solution was found (remaining tasks are then cancelled)
+                result.completeExceptionally(e);
+            }
+        });
+        try {
+            return result.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof TimeoutException timeout) {
+                throw timeout;
+            }
+            if (e.getCause() instanceof RuntimeException runtime) {
+                // For instance, the memory budget of a solver is exceeded
+                throw runtime;
+            }
+            throw e;
+        } finally {
+            // Stops the remaining searches
+            tasks.forEach(task -> task.cancel(false));
+            solvers.values().forEach(SkyscraperSolver::interrupt);
+        }
+    }
+
+    private void conquer(int[][] cube, Map<Thread, SkyscraperSolver> solvers, CompletableFuture<int[][]> result) {
+        if (result.isDone()) {
+            return;
+        }
+        // Only the current thread uses its solver, there's no need to lock the map while creating it
+        SkyscraperSolver solver = solvers.get(Thread.currentThread());
+        if (solver == null) {
+            solver = factory.get();
+            solver.setMemoryBudget(solver.getMemoryBudget() / pool.getParallelism());
+            solvers.put(Thread.currentThread(), solver);
+            if (result.isDone()) {
+                // The solution was found while the solver was created: it may have missed the interruption of the registered solvers
+                return;
+            }
+        }
+        try {
+            final int[][] solution = solver.solve(cube);
+            if (solution != null && result.complete(solution)) {
+                solvers.values().forEach(SkyscraperSolver::interrupt);
+            }
+        } catch (TimeoutException e) {
+            // Interrupted because another cube has a solution, or real timeout
+            if (!result.isDone()) {
+                result.completeExceptionally(e);
+            }
+        } catch (ContradictionException e) {
+            result.completeExceptionally(e);
+        }
+    }
+
+    /**
+     * Splits a problem in cubes.
+     * @param solver a solver
+     * @param target the number of cubes to reach (if possible)
+     * @return the cubes, each one being a list of assumptions {row, column, value}
+     */
+    static int[][][] getCubes(SkyscraperSolver solver, int target) {
+        final int n = solver.getSize();
+        final boolean[][][] candidates = solver.getCandidateValues();
+        // Looks for the line with the fewest candidates
+        int bestLine = 0;
+        boolean bestIsRow = true;
+        int bestCount = Integer.MAX_VALUE;
+        for (int line = 0; line < n; line++) {
+            for (boolean isRow : new boolean[] {true, false}) {
+                int count = 0;
+                for (int k = 0; k < n; k++) {
+                    count += count(isRow ? candidates[line][k] : candidates[k][line]);
+                }
+                if (count < bestCount) {
+                    bestCount = count;
+                    bestLine = line;
+                    bestIsRow = isRow;
+                }
+            }
+        }
+        // Assigns its cells, starting with the ones that have the fewest candidates, until there's enough cubes
+        final List<int[]> cells = new ArrayList<>();
+        for (int k = 0; k < n; k++) {
+            cells.add(bestIsRow ? new int[] {bestLine, k} : new int[] {k, bestLine});
+        }
+        cells.sort((c1, c2) -> Integer.compare(count(candidates[c1[0]][c1[1]]), count(candidates[c2[0]][c2[1]])));
+        List<int[][]> cubes = Collections.singletonList(new int[0][]);
+        for (int[] cell : cells) {
+            if (cubes.size() >= target) {
+                break;
+            }
+            final List<int[][]> next = new ArrayList<>();
+            for (int[][] cube : cubes) {
+                for (int val = 1; val <= n; val++) {
+                    if (candidates[cell[0]][cell[1]][val] && !contains(cube, val)) {
+                        final int[][] extended = new int[cube.length + 1][];
+                        System.arraycopy(cube, 0, extended, 0, cube.length);
+                        extended[cube.length] = new int[] {cell[0], cell[1], val};
+                        next.add(extended);
+                    }
+                }
+            }
+            cubes = next;
+        }
+        return cubes.toArray(int[][][]::new);
+    }
+
+    private static int count(boolean[] values) {
+        int count = 0;
+        for (boolean value : values) {
+            if (value) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static boolean contains(int[][] cube, int val) {
+        for (int[] assumption : cube) {
+            if (assumption[2] == val) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,73 @@
+package com.fathzer.skycrapper;
+
+import static org.sat4j.core.LiteralsUtils.negLit;
+import static org.sat4j.core.LiteralsUtils.posLit;
+import static org.sat4j.core.LiteralsUtils.var;
+
+import org.sat4j.minisat.core.ILits;
+import org.sat4j.minisat.core.IPhaseSelectionStrategy;
+import org.sat4j.minisat.orders.VarOrderHeap;
+
+/**
+ * A variable order that decides some variables first, with a given phase.
+ * <p>SAT4J resets the activities and the saved phases of all variables at the beginning of every search.
+ * This order then raises the activity of the hinted variables, so that they are the first to be decided.
+ * The first decision on each hinted variable uses the hinted phase, whatever the phase selection strategy
+ * (strategies with a fixed phase, like the positive or negative ones, ignore the phases they are initialized with).
+ * <br>Once a hinted variable was decided, it behaves exactly as a standard {@link VarOrderHeap}.</p>
+ */
+final class HintedVarOrderHeap extends VarOrderHeap {
+    private static final long serialVersionUID = 1L;
+
+    private int[] hints;
+    /** The hinted literal of each variable not decided yet since the search started, 0 if there's none */
+    private int[] pending;
+
+    /**
+     * Constructor.
+     * @param strategy the phase selection strategy
+     */
+    HintedVarOrderHeap(IPhaseSelectionStrategy strategy) {
+        super(strategy);
+        this.hints = new int[0];
+        this.pending = new int[0];
+    }
+
+    /**
+     * Sets the hinted variables.
+     * @param hints The hints in DIMACS format (a positive literal for a variable expected to be true, a negative one for a false variable)
+     */
+    void setHints(int[] hints) {
+        this.hints = hints;
+    }
+
+    @Override
+    public void init() {
+        super.init();
+        final int nVars = lits.nVars();
+        pending = new int[nVars + 1];
+        for (int hint : hints) {
+            final int var = Math.abs(hint);
+            if (var <= nVars) {
+                final int literal = hint > 0 ? posLit(var) : negLit(var);
+                updateVar(literal, 1.0);
+                phaseStrategy.init(var, literal);
+                pending[var] = literal;
+            }
+        }
+    }
+
+    @Override
+    public int select() {
+        final int literal = super.select();
+        if (literal != ILits.UNDEFINED) {
+            final int var = var(literal);
+            final int hinted = pending[var];
+            if (hinted != 0) {
+                pending[var] = 0;
+                return hinted;
+            }
+        }
+        return literal;
+    }
+}
@@ -1,16 +1,35 @@
 package com.fathzer.skycrapper;
 
 import static com.fathzer.skycrapper.SkyscraperSolver.*;
+
+import java.util.concurrent.ForkJoinPool;
+
 import org.sat4j.specs.ContradictionException;
 import org.sat4j.specs.TimeoutException;
 
 public class Main {
+    private static ForkJoinPool pool;
+
     public static void main(String[] args) throws ContradictionException, TimeoutException {
-    	int nbLoops = Integer.getInteger("loops", 1);
+    	int nbLoops = Integer.getInteger("nbLoops", 1);
     	int warmup = Integer.getInteger("warmup",0);
     	
     	String input = args[0];
+    	ClueChecker.Reason reason = ClueChecker.check(new InputDataParser().parse(input));
+    	if (reason != null) {
+    		System.out.println("No solution: " + reason);
+    		return;
+    	}
     	
+    	try {
+    		run(input, warmup, nbLoops);
+    	} catch (MemoryBudgetExceededException e) {
+    		// The grid is too large for the memory budget
+    		System.out.println("Puzzle refused: " + e.getMessage());
+    	}
+    }
+    
+    private static void run(String input, int warmup, int nbLoops) throws ContradictionException, TimeoutException {
     	for (int i=0;i<warmup;i++) {
     		solve(input);
     	}
@@ -21,20 +40,72 @@ public class Main {
     		if (i==nbLoops-1) {
     			final long end = System.currentTimeMillis();
                 System.out.println("Time: " + (end - start) / nbLoops + " ms");
-                printSolution(solution);
+                if (solution == null) {
+                    System.out.println("No solution");
+                } else {
+                    printSolution(solution);
+                }
     		}
     	}
     }
     
     private static int[][] solve(String input) throws ContradictionException, TimeoutException {
         InputDataParser parser = new InputDataParser();
-        InputData data = parser.parse(input);
-        SkyscraperSolver solver = new SkyscraperSolver(data.size());
+        return solve(parser.parse(input));
+    }
+
+    /**
+     * Solves a puzzle with the solver settings defined by the java system properties.
+     * <br>Clue sets rejected by {@link ClueChecker} are not encoded.
+     * @param data the puzzle's clues
+     * @return the solution, null if the puzzle has no solution
+     */
+    static int[][] solve(InputData data) throws ContradictionException, TimeoutException {
+        if (ClueChecker.check(data) != null) {
+            return null;
+        }
+        int threads = Integer.getInteger("threads", 1);
+        if (threads > 1) {
+            return new CubeAndConquerSolver(() -> newConfiguredSolver(data), getPool(threads)).solve();
+        }
+        return newConfiguredSolver(data).solve();
+    }
+
+    private static SkyscraperSolver newConfiguredSolver(InputData data) {
+        SkyscraperSolver solver = newSolver(data, SolverProfile.forSize(data.size()));
+        // Explicit settings override the profile of the grid size
+        if (System.getProperty("lazy") != null) {
+            solver.setLazyVisibility(Boolean.getBoolean("lazy"));
+        }
+        if (System.getProperty("table") != null) {
+            solver.setTableEncoding(Boolean.getBoolean("table"));
+        }
+        if (System.getProperty("compact") != null) {
+            solver.setCompactCardinality(Boolean.getBoolean("compact"));
+        }
+        return solver;
+    }
+
+    private static synchronized ForkJoinPool getPool(int threads) {
+        if (pool == null) {
+            pool = new ForkJoinPool(threads);
+        }
+        return pool;
+    }
+
+    /**
+     * Creates a solver with the clues of a puzzle.
+     * @param data the puzzle's clues
+     * @param profile the solver's profile
+     * @return a new solver
+     */
+    static SkyscraperSolver newSolver(InputData data, SolverProfile profile) {
+        SkyscraperSolver solver = new SkyscraperSolver(data.size(), profile);
         add(solver, DIRECTION_UP, data.up());
         add(solver, DIRECTION_DOWN, data.down());
         add(solver, DIRECTION_LEFT, data.left());
         add(solver, DIRECTION_RIGHT, data.right());
-        return solver.solve();
+        return solver;
     }
 
     private static void add(SkyscraperSolver solver, int direction, int[] clues) {
@@ -0,0 +1,17 @@
+package com.fathzer.skycrapper;
+
+/**
+ * Thrown when a puzzle is refused because its encoding, even downgraded, exceeds the solver's memory budget.
+ * @see SkyscraperSolver#setMemoryBudget(long)
+ */
+public class MemoryBudgetExceededException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Constructor.
+     * @param message the detail message
+     */
+    public MemoryBudgetExceededException(String message) {
+        super(message);
+    }
+}
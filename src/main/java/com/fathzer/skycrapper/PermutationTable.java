@@ -0,0 +1,142 @@
+package com.fathzer.skycrapper;
+
+/**
+ * Precomputed tables of the line permutations consistent with a pair of opposite clues.
+ * <p>For a grid of size n (1 &lt;= n &lt;= {@value #MAX_SIZE}), every permutation of 1..n is classified by the number
+ * of buildings visible from its start (clueA) and from its end (clueB).
+ * The table of a given size is computed once, the first time it is requested.</p>
+ * <p>Permutations are stored compactly in an int: the first (up to 8) values are packed in 4 bits each,
+ * the last value being deduced from the others (it is the only missing one).</p>
+ */
+final class PermutationTable {
+    /** The maximum supported grid size. */
+    static final int MAX_SIZE = 9;
+
+    private static final int[][][][] TABLES = new int[MAX_SIZE + 1][][][];
+
+    private PermutationTable() {
+        super();
+    }
+
+    /**
+     * Gets the permutations consistent with a pair of opposite clues.
+     * @param n the grid size
+     * @param clueA the clue at the start of the line (0 = no clue)
+     * @param clueB the clue at the end of the line (0 = no clue)
+     * @return the packed permutations, see {@link #value(int, int, int)}. The returned array should not be modified.
+     * @throws IllegalArgumentException if n is not in [1, {@value #MAX_SIZE}] or if a clue is not in [0, n]
+     */
+    static int[] get(int n, int clueA, int clueB) {
+        if (n < 1 || n > MAX_SIZE) {
+            throw new IllegalArgumentException("Grid size " + n + " is out of range [1, " + MAX_SIZE + "]");
+        }
+        if (clueA < 0 || clueA > n || clueB < 0 || clueB > n) {
+            throw new IllegalArgumentException("Clues " + clueA + "/" + clueB + " are out of range [0, " + n + "]");
+        }
+        return getTable(n)[clueA][clueB];
+    }
+
+    /**
+     * Gets a value of a packed permutation.
+     * @param packed a packed permutation
+     * @param n the grid size
+     * @param k the position in the line (0 to n-1)
+     * @return the value (1 to n) at position k
+     */
+    static int value(int packed, int n, int k) {
+        if (k < n - 1) {
+            return (packed >>> (4 * k)) & 0xF;
+        }
+        int sum = 0;
+        for (int i = 0; i < n - 1; i++) {
+            sum += (packed >>> (4 * i)) & 0xF;
+        }
+        return n * (n + 1) / 2 - sum;
+    }
+
+    private static synchronized int[][][] getTable(int n) {
+        if (TABLES[n] == null) {
+            TABLES[n] = build(n);
+        }
+        return TABLES[n];
+    }
+
+    private static int[][][] build(int n) {
+        // First pass counts the permutations of each (clueA, clueB) pair, including unconstrained sides, second one fills the table
+        final int[][] counts = new int[n + 1][n + 1];
+        forEachPermutation(n, (a, b, packed) -> {
+            counts[a][b]++;
+            counts[0][b]++;
+            counts[a][0]++;
+            counts[0][0]++;
+        });
+        final int[][][] table = new int[n + 1][n + 1][];
+        for (int a = 0; a <= n; a++) {
+            for (int b = 0; b <= n; b++) {
+                table[a][b] = new int[counts[a][b]];
+                counts[a][b] = 0;
+            }
+        }
+        forEachPermutation(n, (a, b, packed) -> {
+            table[a][b][counts[a][b]++] = packed;
+            table[0][b][counts[0][b]++] = packed;
+            table[a][0][counts[a][0]++] = packed;
+            table[0][0][counts[0][0]++] = packed;
+        });
+        return table;
+    }
+
+    @FunctionalInterface
+    private interface PermutationConsumer {
+        void accept(int clueA, int clueB, int packed);
+    }
+
+    private static void forEachPermutation(int n, PermutationConsumer consumer) {
+        final int[] line = new int[n];
+        for (int i = 0; i < n; i++) {
+            line[i] = i + 1;
+        }
+        // Iterates over permutations in lexicographic order
+        while (true) {
+            int packed = 0;
+            for (int i = 0; i < n - 1; i++) {
+                packed |= line[i] << (4 * i);
+            }
+            consumer.accept(countVisible(line, false), countVisible(line, true), packed);
+            int i = n - 2;
+            while (i >= 0 && line[i] > line[i + 1]) {
+                i--;
+            }
+            if (i < 0) {
+                return;
+            }
+            int j = n - 1;
+            while (line[j] < line[i]) {
+                j--;
+            }
+            swap(line, i, j);
+            for (int l = i + 1, r = n - 1; l < r; l++, r--) {
+                swap(line, l, r);
+            }
+        }
+    }
+
+    private static void swap(int[] line, int i, int j) {
+        final int tmp = line[i];
+        line[i] = line[j];
+        line[j] = tmp;
+    }
+
+    private static int countVisible(int[] line, boolean reversed) {
+        int count = 0;
+        int max = 0;
+        for (int k = 0; k < line.length; k++) {
+            final int height = reversed ? line[line.length - 1 - k] : line[k];
+            if (height > max) {
+                count++;
+                max = height;
+            }
+        }
+        return count;
+    }
+}
@@ -1,10 +1,16 @@
 package com.fathzer.skycrapper;
 
+import java.util.Arrays;
+
 import org.sat4j.core.VecInt;
 import org.sat4j.minisat.SolverFactory;
+import org.sat4j.minisat.core.ICDCL;
+import org.sat4j.minisat.core.IOrder;
+import org.sat4j.minisat.orders.RandomWalkDecorator;
 import org.sat4j.specs.ContradictionException;
 import org.sat4j.specs.IProblem;
 import org.sat4j.specs.ISolver;
+import org.sat4j.specs.IVecInt;
 import org.sat4j.specs.TimeoutException;
 
 /**
@@ -16,19 +22,26 @@ public class SkyscraperSolver {
     public static final int DIRECTION_RIGHT = 1;
     public static final int DIRECTION_UP = 2;
     public static final int DIRECTION_DOWN = 3;
+    
+    // Nombre maximal de permutations d'une ligne encodées par des variables sélecteurs
+    // Au delà, seul le filtrage des domaines utilise la table
+    private static final int MAX_TABLE_SELECTORS = 1000;
 
     private final int n; // Taille de la grille (typiquement 4, 5, 6, ou 9)
     private final ISolver solver;
     private int nextVar = 1; // Prochain numéro de variable SAT
     
-    // Mapping des variables
-    // cell[i][j][v] : vrai si case (i,j) a une valeur > v
-    // Avec order encoding : valeur = k ssi cell[i][j][k-1] ET NOT cell[i][j][k]
-    private int[][][] cellOrder;
+    // Mapping des variables, calculé par order(i, j, v) et visible(dir, line, pos) plutôt que stocké dans des tableaux
+    // order(i, j, v) : vrai si case (i,j) a une valeur > v (variables 1 à N³)
+    // Avec order encoding : valeur = k ssi order(i, j, k-1) ET NOT order(i, j, k)
+    // visible(dir, line, pos) : case visible depuis direction dir (variables N³+1 à N³+4N²)
+    // Les variables auxiliaires suivantes sont allouées à la demande, à partir de nextVar
     
-    // Variables auxiliaires pour la visibilité
-    // visible[dir][line][pos] : case visible depuis direction dir
-    private int[][][] visible;
+    // Modèle du coût mémoire de l'encodage dans Sat4j (voir estimateMemory)
+    // Calibré par mesure du tas (Sat4j 2.3.6, JVM 64 bits): l'estimation dépasse la mesure de 0 à 15% pour N de 9 à 25
+    static final int BYTES_PER_VARIABLE = 270;
+    static final int BYTES_PER_CONSTRAINT = 10;
+    static final int BYTES_PER_LITERAL = 20;
     
     // Contraintes de visibilité [direction][ligne] = nombre attendu
     // direction: 0=gauche, 1=droite, 2=haut, 3=bas
@@ -37,16 +50,71 @@ public class SkyscraperSolver {
     // Grille initiale (0 = vide)
     private int[][] initial;
     
+    // Mode paresseux: les contraintes de visibilité ne sont ajoutées que pour les lignes violées
+    private boolean lazyVisibility;
+    
+    // Encodage des lignes par table de permutations (grilles de taille <= PermutationTable.MAX_SIZE)
+    private boolean tableEncoding;
+    
+    // Lignes dont la contrainte de visibilité est déjà encodée [direction][ligne]
+    private boolean[][] encoded;
+    
+    // Lignes dont les déductions immédiates de l'indice sont déjà ajoutées [direction][ligne]
+    private boolean[][] deduced;
+    
+    // Cases dont la valeur initiale est déjà ajoutée
+    private boolean[][] initialAdded;
+    
+    // Vrai une fois les variables et les contraintes de carré latin ajoutées au solveur
+    private boolean built;
+    
+    // Vrai si l'ajout d'une contrainte a révélé que le problème est insatisfiable
+    private boolean unsatisfiable;
+    
+    // Vrai si la résolution a été interrompue (voir interrupt)
+    private volatile boolean cancelled;
+    
+    // Grille dont les valeurs guident les premières décisions du solveur (null = aucune)
+    private int[][] phaseHint;
+    
+    // Heuristique qui fait décider en premier les variables de la grille guide (null tant qu'elle n'est pas installée)
+    private HintedVarOrderHeap hintedOrder;
+    
+    // Contraintes "au plus une valeur" encodées par des contraintes de cardinalité natives plutôt que par paires
+    private boolean compactCardinality;
+    
+    // Mémoire maximale (en octets) que peut occuper l'encodage initial
+    private long memoryBudget;
+    
+    /**
+     * Crée un résolveur utilisant le profil défini pour la taille de grille (voir {@link SolverProfile#forSize(int)})
+     * @param n taille de la grille
+     */
     public SkyscraperSolver(int n) {
+        this(n, SolverProfile.forSize(n));
+    }
+    
+    /**
+     * Crée un résolveur utilisant un profil
+     * <br>Les options d'encodage du profil peuvent ensuite être modifiées par {@link #setLazyVisibility(boolean)} et {@link #setTableEncoding(boolean)}.
+     * @param n taille de la grille
+     * @param profile le profil
+     */
+    public SkyscraperSolver(int n, SolverProfile profile) {
         this.n = n;
         this.solver = SolverFactory.newDefault();
-        solver.newVar(1000000); // Pré-allouer des variables
-        solver.setExpectedNumberOfClauses(100000);
+        profile.apply(solver);
+        this.lazyVisibility = profile.lazy();
+        this.tableEncoding = profile.table();
+        this.compactCardinality = profile.compact();
+        final Long budget = Long.getLong("memoryBudget");
+        this.memoryBudget = budget == null ? Runtime.getRuntime().maxMemory() / 2 : budget * 1024 * 1024;
         
-        this.cellOrder = new int[n][n][n]; // N valeurs: 1..N
-        this.visible = new int[4][n][n];
         this.constraints = new int[4][n];
         this.initial = new int[n][n];
+        this.encoded = new boolean[4][n];
+        this.deduced = new boolean[4][n];
+        this.initialAdded = new boolean[n][n];
     }
     
     /**
@@ -54,56 +122,519 @@ public class SkyscraperSolver {
      * @param direction 0=gauche, 1=droite, 2=haut, 3=bas
      * @param line numéro de ligne/colonne
      * @param count nombre de cases visibles attendu (0 = pas de contrainte)
+     * @throws IllegalStateException si la contrainte, déjà ajoutée au solveur par un précédent appel à {@link #solve()}, est modifiée
      */
     public void setVisibilityConstraint(int direction, int line, int count) {
+        if ((encoded[direction][line] || deduced[direction][line]) && constraints[direction][line] != count) {
+            throw new IllegalStateException("Visibility constraint " + direction + "/" + line + " is already encoded, it can't be changed");
+        }
         constraints[direction][line] = count;
     }
     
     /**
      * Définit une valeur initiale dans la grille
+     * @throws IllegalStateException si la valeur, déjà ajoutée au solveur par un précédent appel à {@link #solve()}, est modifiée
      */
     public void setInitialValue(int row, int col, int value) {
+        if (initialAdded[row][col] && initial[row][col] != value) {
+            throw new IllegalStateException("Initial value of " + row + "/" + col + " is already encoded, it can't be changed");
+        }
         initial[row][col] = value;
     }
     
+    /**
+     * Définit une grille qui guide les premières décisions du solveur (démarrage à chaud).
+     * <p>Quand le problème ne diffère d'un problème déjà résolu que par quelques indices ou valeurs initiales,
+     * fournir la solution précédente permet au solveur de la retrouver, ou d'en trouver une proche, avec très peu de
+     * retours arrière.<br>
+     * Après une résolution réussie, la solution trouvée devient automatiquement la grille guide des résolutions suivantes
+     * du même solveur.</p>
+     * @param grid une grille NxN de valeurs entre 1 et N, 0 pour une case qui ne guide pas le solveur (null pour ne pas guider le solveur)
+     * @throws IllegalArgumentException si la grille n'est pas de taille NxN ou contient une valeur hors de 0..N
+     */
+    public void setPhaseHint(int[][] grid) {
+        if (grid != null) {
+            if (grid.length != n) {
+                throw new IllegalArgumentException("Phase hint has " + grid.length + " rows, expected " + n);
+            }
+            for (int i = 0; i < n; i++) {
+                if (grid[i] == null || grid[i].length != n) {
+                    throw new IllegalArgumentException("Row " + i + " of phase hint does not have " + n + " cells");
+                }
+                for (int j = 0; j < n; j++) {
+                    if (grid[i][j] < 0 || grid[i][j] > n) {
+                        throw new IllegalArgumentException("Phase hint value " + grid[i][j] + " at " + i + "/" + j + " is out of range [0, " + n + "]");
+                    }
+                }
+            }
+        }
+        this.phaseHint = grid;
+    }
+    
+    /**
+     * Active le mode paresseux (CEGAR) pour les contraintes de visibilité.
+     * <p>Le problème est d'abord résolu avec les seules contraintes de carré latin (plus les déductions
+     * immédiates des indices 1 et N). Les lignes dont le nombre de cases visibles ne correspond pas
+     * à l'indice sont alors encodées, puis le problème est résolu à nouveau, de manière incrémentale,
+     * jusqu'à ce qu'aucune ligne ne soit violée.</p>
+     * @param lazy true pour activer le mode paresseux (par défaut, la valeur définie par le profil du résolveur)
+     */
+    public void setLazyVisibility(boolean lazy) {
+        this.lazyVisibility = lazy;
+    }
+    
+    /**
+     * Active l'encodage des lignes par table de permutations.
+     * <p>Pour les grilles de taille inférieure ou égale à {@value PermutationTable#MAX_SIZE}, les permutations
+     * compatibles avec les indices opposés d'une ligne sont lues dans une {@link PermutationTable}.
+     * Elles servent à filtrer les valeurs possibles de chaque case et, si elles sont peu nombreuses,
+     * remplacent l'encodage de la visibilité par une variable sélecteur par permutation.</p>
+     * @param table true pour activer l'encodage par table (par défaut, la valeur définie par le profil du résolveur)
+     */
+    public void setTableEncoding(boolean table) {
+        this.tableEncoding = table;
+    }
+    
+    /**
+     * Active l'encodage compact des contraintes "au plus une valeur" (par case, ligne et colonne).
+     * <p>Par défaut, ces contraintes sont encodées par une clause binaire par paire de variables, soit O(N⁴) clauses.
+     * L'encodage compact utilise à la place une contrainte de cardinalité native de Sat4j par groupe, soit O(N³) littéraux,
+     * au prix d'une propagation un peu plus lente. Il est utile pour les grandes grilles.</p>
+     * @param compact true pour activer l'encodage compact (par défaut, la valeur définie par le profil du résolveur)
+     */
+    public void setCompactCardinality(boolean compact) {
+        this.compactCardinality = compact;
+    }
+    
+    /**
+     * Définit la mémoire maximale que peut occuper l'encodage initial du problème.
+     * <p>Avant l'encodage, la mémoire nécessaire est estimée. Si elle dépasse le budget, l'encodage est dégradé:
+     * contraintes "au plus une valeur" compactes (voir {@link #setCompactCardinality(boolean)}), puis, si ce n'est pas suffisant,
+     * contraintes de visibilité paresseuses (voir {@link #setLazyVisibility(boolean)}). Si l'encodage dégradé dépasse encore
+     * le budget, la résolution est refusée par une {@link MemoryBudgetExceededException}.</p>
+     * @param bytes le budget en octets (par défaut, la valeur en Mo de la propriété système memoryBudget, la moitié de la mémoire maximale de la JVM si elle n'est pas définie)
+     */
+    public void setMemoryBudget(long bytes) {
+        this.memoryBudget = bytes;
+    }
+    
+    /**
+     * Retourne la mémoire maximale que peut occuper l'encodage initial du problème (voir {@link #setMemoryBudget(long)})
+     * @return le budget en octets
+     */
+    public long getMemoryBudget() {
+        return memoryBudget;
+    }
+    
     /**
      * Construit et résout le problème SAT
+     * <p>Le solveur peut être réutilisé: entre deux appels, il est possible d'ajouter des indices ou des valeurs initiales
+     * (mais pas de modifier ceux déjà ajoutés). Seules les nouvelles contraintes sont alors encodées et les clauses apprises
+     * lors des résolutions précédentes sont conservées.</p>
+     * @return la solution, null si le problème n'a pas de solution
+     * @throws MemoryBudgetExceededException si l'encodage, même dégradé, dépasse le budget mémoire (voir {@link #setMemoryBudget(long)})
      */
     public int[][] solve() throws ContradictionException, TimeoutException {
-        allocateVariables();
-        addOrderEncodingConstraints();
-        addSudokuConstraints();
-        addVisibilityConstraints();
-        addInitialValues();
+        return solve(new VecInt());
+    }
+    
+    /**
+     * Résout le problème en supposant que certaines cases ont une valeur donnée.
+     * <p>Contrairement aux valeurs initiales, ces hypothèses ne sont pas conservées d'un appel à l'autre.</p>
+     * @param assumptions les hypothèses, sous la forme {ligne, colonne, valeur}
+     * @return la solution, null si le problème n'a pas de solution respectant les hypothèses
+     */
+    int[][] solve(int[][] assumptions) throws ContradictionException, TimeoutException {
+        checkCancelled();
+        if (!built) {
+            // Les variables doivent être allouées pour traduire les hypothèses
+            build();
+        }
+        final VecInt literals = new VecInt(2 * assumptions.length);
+        for (int[] assumption : assumptions) {
+            final int[] cell = getOrderVars(assumption[0], assumption[1]);
+            final int val = assumption[2];
+            literals.push(cell[val - 1]);
+            if (val < n) {
+                literals.push(-cell[val]);
+            }
+        }
+        return solve(literals);
+    }
+    
+    /**
+     * Interrompt la résolution en cours, qui lève alors une {@link TimeoutException}.
+     * <br>Cette méthode peut être appelée depuis un autre thread que celui qui résout le problème.
+     * L'interruption est définitive: si la résolution n'a pas encore commencé, ou entre deux recherches du mode paresseux,
+     * la recherche suivante n'est pas lancée et lève aussi une {@link TimeoutException}.
+     */
+    public void interrupt() {
+        cancelled = true;
+        solver.expireTimeout();
+    }
+    
+    /**
+     * Calcule, sans recherche, les valeurs possibles de chaque case à partir des indices et des valeurs initiales.
+     * <p>Une case située à la distance d (0 pour la première case) d'un indice c a une valeur inférieure ou égale à N-c+1+d.
+     * Un indice 1 impose N dans la première case et un indice N impose la ligne 1..N.</p>
+     * @return les valeurs possibles [ligne][colonne][valeur], pour les valeurs de 1 à N (l'indice 0 n'est pas utilisé)
+     */
+    boolean[][][] getCandidateValues() {
+        final boolean[][][] candidates = new boolean[n][n][n + 1];
+        final int[][] max = new int[n][n];
+        for (int[] row : max) {
+            Arrays.fill(row, n);
+        }
+        final int[][] fixed = new int[n][n];
+        for (int dir = 0; dir < 4; dir++) {
+            for (int line = 0; line < n; line++) {
+                final int clue = constraints[dir][line];
+                for (int k = 0; clue > 0 && k < n; k++) {
+                    final int row = switch (dir) {
+                        case DIRECTION_LEFT, DIRECTION_RIGHT -> line;
+                        case DIRECTION_UP -> k;
+                        default -> n - 1 - k;
+                    };
+                    final int col = switch (dir) {
+                        case DIRECTION_LEFT -> k;
+                        case DIRECTION_RIGHT -> n - 1 - k;
+                        default -> line;
+                    };
+                    max[row][col] = Math.min(max[row][col], n - clue + 1 + k);
+                    if (clue == n) {
+                        fixed[row][col] = k + 1;
+                    } else if (clue == 1 && k == 0) {
+                        fixed[row][col] = n;
+                    }
+                }
+            }
+        }
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                if (initial[i][j] > 0) {
+                    fixed[i][j] = initial[i][j];
+                }
+            }
+        }
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                for (int val = 1; val <= max[i][j]; val++) {
+                    candidates[i][j][val] = fixed[i][j] == 0 || fixed[i][j] == val;
+                }
+            }
+        }
+        // Une valeur imposée n'est plus possible ailleurs sur sa ligne et sa colonne
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                if (fixed[i][j] > 0) {
+                    for (int k = 0; k < n; k++) {
+                        if (k != j) candidates[i][k][fixed[i][j]] = false;
+                        if (k != i) candidates[k][j][fixed[i][j]] = false;
+                    }
+                }
+            }
+        }
+        return candidates;
+    }
+    
+    /**
+     * Retourne la taille de la grille
+     */
+    public int getSize() {
+        return n;
+    }
+    
+    /**
+     * Indique si les contraintes de visibilité sont paresseuses (éventuellement suite à une dégradation de l'encodage)
+     */
+    boolean isLazyVisibility() {
+        return lazyVisibility;
+    }
+    
+    /**
+     * Retourne le nombre de variables déclarées au solveur Sat4j et le nombre de variables utilisées par l'encodage
+     * @return {variables déclarées, variables utilisées}
+     */
+    int[] getVariableCounts() {
+        return new int[] {solver.nVars(), nextVar - 1};
+    }
+    
+    /**
+     * Indique si les contraintes "au plus une valeur" sont compactes (éventuellement suite à une dégradation de l'encodage)
+     */
+    boolean isCompactCardinality() {
+        return compactCardinality;
+    }
+    
+    /**
+     * Retourne l'heuristique de choix des variables utilisée par Sat4j (null si le solveur n'en a pas)
+     */
+    IOrder getVariableOrder() {
+        return solver instanceof ICDCL<?> cdcl ? cdcl.getOrder() : null;
+    }
+    
+    private int[][] solve(IVecInt assumptions) throws ContradictionException, TimeoutException {
+        checkCancelled();
+        if (!built) {
+            build();
+        }
+        if (unsatisfiable) {
+            return null;
+        }
+        try {
+            if (lazyVisibility) {
+                addClueDeductions();
+            } else {
+                addVisibilityConstraints();
+            }
+            addInitialValues();
+        } catch (ContradictionException e) {
+            // Les indices ou valeurs initiales rendent le problème trivialement insatisfiable
+            unsatisfiable = true;
+            return null;
+        }
+        if (phaseHint != null) {
+            addPhaseHint();
+        }
         
         IProblem problem = solver;
-        if (problem.isSatisfiable()) {
-            return extractSolution();
+        while (isSatisfiable(problem, assumptions)) {
+            int[][] solution = extractSolution();
+            try {
+                if (!lazyVisibility || !addViolatedVisibilityConstraints(solution)) {
+                    phaseHint = solution;
+                    return solution;
+                }
+            } catch (ContradictionException e) {
+                // Les contraintes ajoutées rendent le problème trivialement insatisfiable
+                unsatisfiable = true;
+                return null;
+            }
         }
         return null;
     }
     
     /**
-     * Alloue toutes les variables SAT nécessaires
+     * Lance une recherche, sauf si la résolution a été interrompue
+     * <br>Sat4j réinitialise son délai au début de chaque recherche: une interruption demandée avant la recherche serait perdue.
+     */
+    private boolean isSatisfiable(IProblem problem, IVecInt assumptions) throws TimeoutException {
+        checkCancelled();
+        return problem.isSatisfiable(assumptions);
+    }
+    
+    private void checkCancelled() throws TimeoutException {
+        if (cancelled) {
+            throw new TimeoutException("Interrupted");
+        }
+    }
+    
+    /**
+     * Fait décider en premier les variables d'order encoding, avec la phase correspondant à la grille guide
+     * <br>La marche aléatoire éventuellement choisie par le profil est conservée autour de l'heuristique guidée.
      */
-    private void allocateVariables() {
-        // Variables order encoding pour les cellules
+    private void addPhaseHint() {
+        if (!(solver instanceof ICDCL<?> cdcl)) {
+            return;
+        }
+        if (hintedOrder == null) {
+            final IOrder order = cdcl.getOrder();
+            hintedOrder = new HintedVarOrderHeap(order.getPhaseSelectionStrategy());
+            cdcl.setOrder(order instanceof RandomWalkDecorator walk ? new RandomWalkDecorator(hintedOrder, walk.getProbability()) : hintedOrder);
+        }
+        final int[] hints = new int[n * n * n];
+        int index = 0;
         for (int i = 0; i < n; i++) {
             for (int j = 0; j < n; j++) {
+                if (phaseHint[i][j] == 0) {
+                    // Case sans indication
+                    continue;
+                }
                 for (int v = 0; v < n; v++) {
-                    cellOrder[i][j][v] = nextVar++;
+                    // order(i, j, v) vrai ssi valeur > v
+                    hints[index++] = phaseHint[i][j] > v ? order(i, j, v) : -order(i, j, v);
                 }
             }
         }
-        
-        // Variables de visibilité
-        for (int dir = 0; dir < 4; dir++) {
-            for (int line = 0; line < n; line++) {
-                for (int pos = 0; pos < n; pos++) {
-                    visible[dir][line][pos] = nextVar++;
+        hintedOrder.setHints(Arrays.copyOf(hints, index));
+    }
+    
+    /**
+     * Compte le nombre de cases visibles d'une ligne de la grille depuis une direction
+     * @param grid une grille complète
+     * @param direction 0=gauche, 1=droite, 2=haut, 3=bas
+     * @param line numéro de ligne/colonne
+     * @return le nombre de cases visibles
+     */
+    static int countVisible(int[][] grid, int direction, int line) {
+        final int size = grid.length;
+        int count = 0;
+        int max = 0;
+        for (int k = 0; k < size; k++) {
+            final int height = switch (direction) {
+                case DIRECTION_LEFT -> grid[line][k];
+                case DIRECTION_RIGHT -> grid[line][size - 1 - k];
+                case DIRECTION_UP -> grid[k][line];
+                default -> grid[size - 1 - k][line];
+            };
+            if (height > max) {
+                count++;
+                max = height;
+            }
+        }
+        return count;
+    }
+    
+    /**
+     * Ajoute au solveur les variables et les contraintes de carré latin, après avoir vérifié le budget mémoire
+     * @throws MemoryBudgetExceededException si l'encodage, même dégradé, dépasse le budget mémoire
+     */
+    private void build() throws ContradictionException {
+        final int clues = getClueCount();
+        if (estimateMemory(n, clues, compactCardinality, lazyVisibility) > memoryBudget) {
+            // Dégradations successives de l'encodage: cardinalités compactes, puis visibilité paresseuse
+            compactCardinality = true;
+            if (estimateMemory(n, clues, true, lazyVisibility) > memoryBudget) {
+                lazyVisibility = true;
+                final long required = estimateMemory(n, clues, true, true);
+                if (required > memoryBudget) {
+                    throw new MemoryBudgetExceededException("A " + n + "x" + n + " grid requires about " + required / (1024 * 1024)
+                            + " MB, which exceeds the memory budget of " + memoryBudget / (1024 * 1024) + " MB");
                 }
             }
         }
+        // Pré-allouer les variables et les clauses de l'encodage
+        solver.newVar(getVariableCount(n));
+        solver.setExpectedNumberOfClauses((int) Math.min(Integer.MAX_VALUE, getConstraintCount(n, clues, compactCardinality, lazyVisibility)));
+        // Les variables order et visible ont des numéros calculés, les variables auxiliaires les suivent
+        nextVar = n * n * n + 4 * n * n + 1;
+        addOrderEncodingConstraints();
+        addSudokuConstraints();
+        built = true;
+    }
+    
+    /**
+     * Retourne la variable vraie si la case (i, j) a une valeur > v
+     */
+    private int order(int i, int j, int v) {
+        return (i * n + j) * n + v + 1;
+    }
+    
+    /**
+     * Retourne les variables d'order encoding de la case (i, j), pour v de 0 à N-1
+     */
+    private int[] getOrderVars(int i, int j) {
+        final int[] vars = new int[n];
+        for (int v = 0; v < n; v++) {
+            vars[v] = order(i, j, v);
+        }
+        return vars;
+    }
+    
+    /**
+     * Retourne la variable vraie si la case à la position pos de la ligne est visible depuis la direction dir
+     */
+    private int visible(int dir, int line, int pos) {
+        return n * n * n + (dir * n + line) * n + pos + 1;
+    }
+    
+    /**
+     * Retourne les variables de visibilité d'une ligne depuis une direction
+     */
+    private int[] getVisibleVars(int dir, int line) {
+        final int[] vars = new int[n];
+        for (int pos = 0; pos < n; pos++) {
+            vars[pos] = visible(dir, line, pos);
+        }
+        return vars;
+    }
+    
+    /**
+     * Retourne le nombre de variables de l'encodage, hors sélecteurs des tables de permutations:
+     * N³ variables d'order encoding, 4N² de visibilité et 3N³ variables "a la valeur" (par case, ligne et colonne)
+     */
+    static int getVariableCount(int n) {
+        return 4 * n * n * n + 4 * n * n;
+    }
+    
+    /**
+     * Retourne le nombre d'indices non nuls
+     */
+    private int getClueCount() {
+        int count = 0;
+        for (int[] side : constraints) {
+            for (int clue : side) {
+                if (clue > 0) count++;
+            }
+        }
+        return count;
+    }
+    
+    /**
+     * Estime le nombre de contraintes de l'encodage initial, hors tables de permutations
+     * @param clues le nombre d'indices non nuls
+     * @param compact true si les contraintes "au plus une valeur" sont compactes
+     * @param lazy true si les contraintes de visibilité sont paresseuses (elles ne sont alors pas comptées)
+     */
+    static long getConstraintCount(int n, int clues, boolean compact, boolean lazy) {
+        return getSizes(n, clues, compact, lazy)[0];
+    }
+    
+    /**
+     * Estime la mémoire occupée par l'encodage initial d'une grille dont tous les indices sont définis
+     * @param compact true si les contraintes "au plus une valeur" sont compactes
+     * @param lazy true si les contraintes de visibilité sont paresseuses
+     * @return la mémoire estimée, en octets
+     * @see #estimateMemory(int, int, boolean, boolean)
+     */
+    static long estimateMemory(int n, boolean compact, boolean lazy) {
+        return estimateMemory(n, 4 * n, compact, lazy);
+    }
+    
+    /**
+     * Estime la mémoire occupée par l'encodage initial, hors tables de permutations (négligeables pour les grilles de taille &lt;= 9).
+     * <p>Le modèle compte les variables, les contraintes et leurs littéraux. En mode non paresseux, les contraintes de
+     * visibilité des indices définis lors de la construction sont comptées; les indices ajoutés ensuite augmentent la mémoire.
+     * En mode paresseux, la mémoire augmente ensuite avec le nombre de lignes violées encodées.</p>
+     * @param clues le nombre d'indices non nuls
+     * @param compact true si les contraintes "au plus une valeur" sont compactes
+     * @param lazy true si les contraintes de visibilité sont paresseuses
+     * @return la mémoire estimée, en octets
+     */
+    static long estimateMemory(int n, int clues, boolean compact, boolean lazy) {
+        final long[] sizes = getSizes(n, clues, compact, lazy);
+        return (long) getVariableCount(n) * BYTES_PER_VARIABLE + sizes[0] * BYTES_PER_CONSTRAINT + sizes[1] * BYTES_PER_LITERAL;
+    }
+    
+    /**
+     * Compte les contraintes et les littéraux de l'encodage initial
+     * @return {nombre de contraintes, nombre de littéraux}
+     */
+    private static long[] getSizes(int n, int clues, boolean compact, boolean lazy) {
+        final long n2 = (long) n * n;
+        final long n3 = n2 * n;
+        // Order encoding: une clause unitaire et N-1 binaires par case
+        long constraints = n2 * n;
+        long literals = n2 + 2 * n2 * (n - 1);
+        // Définition des 3N³ variables "a la valeur": 2 binaires par variable, plus une ternaire pour les valeurs intermédiaires
+        constraints += 6 * n3 + 3 * n2 * (n - 2);
+        literals += 12 * n3 + 9 * n2 * (n - 2);
+        // Exactement une valeur dans 3N² groupes de N variables: une clause "au moins une", puis "au plus une"
+        constraints += 3 * n2;
+        literals += 3 * n3;
+        if (compact) {
+            constraints += 3 * n2;
+            literals += 3 * n3;
+        } else {
+            constraints += 3 * n2 * (n3 - n2) / (2 * n);
+            literals += 3 * n2 * (n3 - n2) / n;
+        }
+        if (!lazy) {
+            // Par indice: une clause unitaire, N²(N-1)/2 ternaires, N(N-1) réciproques et deux contraintes de cardinalité
+            constraints += clues * (1 + n2 * (n - 1) / 2 + n * (n - 1) + 2);
+            literals += clues * (1 + 3 * n2 * (n - 1) / 2 + n * (n2 - n) / 2 + 2 * n2 - 2 * n + 2 * n);
+        }
+        return new long[] {constraints, literals};
     }
     
     /**
@@ -113,20 +644,20 @@ public class SkyscraperSolver {
     private void addOrderEncodingConstraints() throws ContradictionException {
         for (int i = 0; i < n; i++) {
             for (int j = 0; j < n; j++) {
-                // Chaque cellule doit avoir au moins la valeur 1 (cellOrder[i][j][0] = vrai)
-                solver.addClause(new VecInt(new int[]{cellOrder[i][j][0]}));
+                // Chaque cellule doit avoir au moins la valeur 1 (order(i, j, 0) = vrai)
+                solver.addClause(new VecInt(new int[]{order(i, j, 0)}));
                 
                 // Ordre décroissant: si >v alors >v-1
                 for (int v = 1; v < n; v++) {
-                    // cellOrder[i][j][v] => cellOrder[i][j][v-1]
-                    // ¬cellOrder[i][j][v] ∨ cellOrder[i][j][v-1]
+                    // order(i, j, v) => order(i, j, v-1)
+                    // ¬order(i, j, v) ∨ order(i, j, v-1)
                     solver.addClause(new VecInt(new int[]{
-                        -cellOrder[i][j][v], 
-                        cellOrder[i][j][v-1]
+                        -order(i, j, v), 
+                        order(i, j, v-1)
                     }));
                 }
                 
-                // Chaque cellule a au plus la valeur N (¬cellOrder[i][j][N-1] peut être faux)
+                // Chaque cellule a au plus la valeur N (¬order(i, j, N-1) peut être faux)
                 // Pas de contrainte supplémentaire nécessaire
             }
         }
@@ -169,18 +700,18 @@ public class SkyscraperSolver {
             
             if (val == 1) {
                 if (n > 1) {
-                    solver.addClause(new VecInt(new int[]{-hasVal, -cellOrder[row][col][1]}));
-                    solver.addClause(new VecInt(new int[]{cellOrder[row][col][1], hasVal}));
+                    solver.addClause(new VecInt(new int[]{-hasVal, -order(row, col, 1)}));
+                    solver.addClause(new VecInt(new int[]{order(row, col, 1), hasVal}));
                 } else {
                     solver.addClause(new VecInt(new int[]{hasVal}));
                 }
             } else if (val == n) {
-                solver.addClause(new VecInt(new int[]{-hasVal, cellOrder[row][col][n-1]}));
-                solver.addClause(new VecInt(new int[]{-cellOrder[row][col][n-1], hasVal}));
+                solver.addClause(new VecInt(new int[]{-hasVal, order(row, col, n-1)}));
+                solver.addClause(new VecInt(new int[]{-order(row, col, n-1), hasVal}));
             } else {
-                solver.addClause(new VecInt(new int[]{-hasVal, cellOrder[row][col][val-1]}));
-                solver.addClause(new VecInt(new int[]{-hasVal, -cellOrder[row][col][val]}));
-                solver.addClause(new VecInt(new int[]{-cellOrder[row][col][val-1], cellOrder[row][col][val], hasVal}));
+                solver.addClause(new VecInt(new int[]{-hasVal, order(row, col, val-1)}));
+                solver.addClause(new VecInt(new int[]{-hasVal, -order(row, col, val)}));
+                solver.addClause(new VecInt(new int[]{-order(row, col, val-1), order(row, col, val), hasVal}));
             }
         }
         
@@ -191,7 +722,7 @@ public class SkyscraperSolver {
      * Encode: exactement une case de la ligne i contient la valeur val
      */
     private void addExactlyOneValueInLine(int row, int val) throws ContradictionException {
-        // hasValue[row][j] = cellOrder[row][j][val-1] ∧ ¬cellOrder[row][j][val]
+        // hasValue[row][j] = order(row, j, val-1) ∧ ¬order(row, j, val)
         // Mais pour simplifier avec at-least-one et at-most-one:
         
         int[] hasValueVars = new int[n];
@@ -200,31 +731,31 @@ public class SkyscraperSolver {
             int hasVal = nextVar++;
             hasValueVars[j] = hasVal;
             
-            // hasVal <=> (cellOrder[row][j][val-1] ∧ (val==N ∨ ¬cellOrder[row][j][val]))
+            // hasVal <=> (order(row, j, val-1) ∧ (val==N ∨ ¬order(row, j, val)))
             if (val == 1) {
-                // Valeur 1: hasVal <=> ¬cellOrder[row][j][1]
-                // (since cellOrder[row][j][0] is always TRUE, value 1 means NOT (value > 1))
+                // Valeur 1: hasVal <=> ¬order(row, j, 1)
+                // (since order(row, j, 0) is always TRUE, value 1 means NOT (value > 1))
                 if (n > 1) {
-                    // hasVal => ¬cellOrder[row][j][1]
-                    solver.addClause(new VecInt(new int[]{-hasVal, -cellOrder[row][j][1]}));
-                    // ¬cellOrder[row][j][1] => hasVal
-                    solver.addClause(new VecInt(new int[]{cellOrder[row][j][1], hasVal}));
+                    // hasVal => ¬order(row, j, 1)
+                    solver.addClause(new VecInt(new int[]{-hasVal, -order(row, j, 1)}));
+                    // ¬order(row, j, 1) => hasVal
+                    solver.addClause(new VecInt(new int[]{order(row, j, 1), hasVal}));
                 } else {
                     // For n=1, value 1 is always true
                     solver.addClause(new VecInt(new int[]{hasVal}));
                 }
             } else if (val == n) {
-                // Valeur N: hasVal <=> cellOrder[row][j][N-1]
-                solver.addClause(new VecInt(new int[]{-hasVal, cellOrder[row][j][n-1]}));
-                solver.addClause(new VecInt(new int[]{-cellOrder[row][j][n-1], hasVal}));
+                // Valeur N: hasVal <=> order(row, j, N-1)
+                solver.addClause(new VecInt(new int[]{-hasVal, order(row, j, n-1)}));
+                solver.addClause(new VecInt(new int[]{-order(row, j, n-1), hasVal}));
             } else {
-                // Valeur intermédiaire: hasVal <=> (cellOrder[row][j][val-1] ∧ ¬cellOrder[row][j][val])
-                // hasVal => cellOrder[row][j][val-1]
-                solver.addClause(new VecInt(new int[]{-hasVal, cellOrder[row][j][val-1]}));
-                // hasVal => ¬cellOrder[row][j][val]
-                solver.addClause(new VecInt(new int[]{-hasVal, -cellOrder[row][j][val]}));
-                // (cellOrder[row][j][val-1] ∧ ¬cellOrder[row][j][val]) => hasVal
-                solver.addClause(new VecInt(new int[]{-cellOrder[row][j][val-1], cellOrder[row][j][val], hasVal}));
+                // Valeur intermédiaire: hasVal <=> (order(row, j, val-1) ∧ ¬order(row, j, val))
+                // hasVal => order(row, j, val-1)
+                solver.addClause(new VecInt(new int[]{-hasVal, order(row, j, val-1)}));
+                // hasVal => ¬order(row, j, val)
+                solver.addClause(new VecInt(new int[]{-hasVal, -order(row, j, val)}));
+                // (order(row, j, val-1) ∧ ¬order(row, j, val)) => hasVal
+                solver.addClause(new VecInt(new int[]{-order(row, j, val-1), order(row, j, val), hasVal}));
             }
         }
         
@@ -242,20 +773,20 @@ public class SkyscraperSolver {
             hasValueVars[i] = hasVal;
             
             if (val == 1) {
-                // Valeur 1: hasVal <=> ¬cellOrder[i][col][1]
+                // Valeur 1: hasVal <=> ¬order(i, col, 1)
                 if (n > 1) {
-                    solver.addClause(new VecInt(new int[]{-hasVal, -cellOrder[i][col][1]}));
-                    solver.addClause(new VecInt(new int[]{cellOrder[i][col][1], hasVal}));
+                    solver.addClause(new VecInt(new int[]{-hasVal, -order(i, col, 1)}));
+                    solver.addClause(new VecInt(new int[]{order(i, col, 1), hasVal}));
                 } else {
                     solver.addClause(new VecInt(new int[]{hasVal}));
                 }
             } else if (val == n) {
-                solver.addClause(new VecInt(new int[]{-hasVal, cellOrder[i][col][n-1]}));
-                solver.addClause(new VecInt(new int[]{-cellOrder[i][col][n-1], hasVal}));
+                solver.addClause(new VecInt(new int[]{-hasVal, order(i, col, n-1)}));
+                solver.addClause(new VecInt(new int[]{-order(i, col, n-1), hasVal}));
             } else {
-                solver.addClause(new VecInt(new int[]{-hasVal, cellOrder[i][col][val-1]}));
-                solver.addClause(new VecInt(new int[]{-hasVal, -cellOrder[i][col][val]}));
-                solver.addClause(new VecInt(new int[]{-cellOrder[i][col][val-1], cellOrder[i][col][val], hasVal}));
+                solver.addClause(new VecInt(new int[]{-hasVal, order(i, col, val-1)}));
+                solver.addClause(new VecInt(new int[]{-hasVal, -order(i, col, val)}));
+                solver.addClause(new VecInt(new int[]{-order(i, col, val-1), order(i, col, val), hasVal}));
             }
         }
         
@@ -269,6 +800,10 @@ public class SkyscraperSolver {
         // Au moins un
         solver.addClause(new VecInt(vars));
         
+        if (compactCardinality) {
+            solver.addAtMost(new VecInt(vars), 1);
+            return;
+        }
         // Au plus un (toutes les paires s'excluent mutuellement)
         for (int i = 0; i < vars.length; i++) {
             for (int j = i + 1; j < vars.length; j++) {
@@ -282,10 +817,172 @@ public class SkyscraperSolver {
      */
     private void addVisibilityConstraints() throws ContradictionException {
         for (int line = 0; line < n; line++) {
-            if (constraints[0][line] > 0) addVisibilityLeft(line, constraints[0][line]);
-            if (constraints[1][line] > 0) addVisibilityRight(line, constraints[1][line]);
-            if (constraints[2][line] > 0) addVisibilityTop(line, constraints[2][line]);
-            if (constraints[3][line] > 0) addVisibilityBottom(line, constraints[3][line]);
+            for (int dir = 0; dir < 4; dir++) {
+                if (constraints[dir][line] > 0 && !encoded[dir][line]) addVisibilityConstraint(dir, line);
+            }
+        }
+    }
+    
+    /**
+     * Ajoute les contraintes de visibilité des lignes non encodées que la solution viole
+     * @return true si au moins une contrainte a été ajoutée
+     */
+    private boolean addViolatedVisibilityConstraints(int[][] solution) throws ContradictionException {
+        boolean added = false;
+        for (int dir = 0; dir < 4; dir++) {
+            for (int line = 0; line < n; line++) {
+                if (constraints[dir][line] > 0 && !encoded[dir][line] && countVisible(solution, dir, line) != constraints[dir][line]) {
+                    addVisibilityConstraint(dir, line);
+                    added = true;
+                }
+            }
+        }
+        return added;
+    }
+    
+    /**
+     * Ajoute la contrainte de visibilité d'une ligne depuis une direction
+     */
+    private void addVisibilityConstraint(int dir, int line) throws ContradictionException {
+        if (tableEncoding && n <= PermutationTable.MAX_SIZE) {
+            addTableConstraint(dir, line);
+        } else {
+            addDirectionalVisibilityConstraint(dir, line);
+        }
+    }
+    
+    /**
+     * Ajoute la contrainte de visibilité d'une ligne depuis une direction, sans table de permutations
+     */
+    private void addDirectionalVisibilityConstraint(int dir, int line) throws ContradictionException {
+        encoded[dir][line] = true;
+        switch (dir) {
+            case DIRECTION_LEFT -> addVisibilityLeft(line, constraints[dir][line]);
+            case DIRECTION_RIGHT -> addVisibilityRight(line, constraints[dir][line]);
+            case DIRECTION_UP -> addVisibilityTop(line, constraints[dir][line]);
+            default -> addVisibilityBottom(line, constraints[dir][line]);
+        }
+    }
+    
+    /**
+     * Encode une ligne, dans celles de ses deux directions qui ne sont pas encore encodées, à partir de la table des
+     * permutations compatibles avec ses indices opposés.
+     * <p>Si les permutations sont trop nombreuses, la table ne sert qu'au filtrage des domaines et
+     * les indices sont encodés par direction.</p>
+     */
+    private void addTableConstraint(int dir, int line) throws ContradictionException {
+        final boolean isRow = dir == DIRECTION_LEFT || dir == DIRECTION_RIGHT;
+        final int startDir = isRow ? DIRECTION_LEFT : DIRECTION_UP;
+        final int endDir = isRow ? DIRECTION_RIGHT : DIRECTION_DOWN;
+        // Une direction déjà encodée (par exemple lors d'une précédente résolution) n'est pas encodée à nouveau
+        final int startClue = encoded[startDir][line] ? 0 : constraints[startDir][line];
+        final int endClue = encoded[endDir][line] ? 0 : constraints[endDir][line];
+        final int[] permutations = PermutationTable.get(n, startClue, endClue);
+        final int[][] cells = new int[n][];
+        for (int k = 0; k < n; k++) {
+            cells[k] = isRow ? getOrderVars(line, k) : getOrderVars(k, line);
+        }
+        
+        // Filtrage des domaines: une valeur absente de toutes les permutations à une position est interdite
+        final boolean[][] allowed = new boolean[n][n + 1];
+        for (int permutation : permutations) {
+            for (int k = 0; k < n; k++) {
+                allowed[k][PermutationTable.value(permutation, n, k)] = true;
+            }
+        }
+        for (int k = 0; k < n; k++) {
+            for (int val = 1; val <= n; val++) {
+                if (!allowed[k][val]) {
+                    // ¬(cell >= val ∧ ¬(cell > val))
+                    solver.addClause(val < n ? new VecInt(new int[]{-cells[k][val - 1], cells[k][val]}) : new VecInt(new int[]{-cells[k][val - 1]}));
+                }
+            }
+        }
+        if (permutations.length > MAX_TABLE_SELECTORS) {
+            if (startClue > 0) addDirectionalVisibilityConstraint(startDir, line);
+            if (endClue > 0) addDirectionalVisibilityConstraint(endDir, line);
+            return;
+        }
+        
+        // Les sélecteurs s'ajoutent aux variables déclarées par build
+        final int lastSelector = nextVar + permutations.length - 1;
+        if (lastSelector > solver.nVars()) {
+            solver.newVar(lastSelector);
+        }
+        // Un sélecteur par permutation: sélecteur => chaque case a la valeur de la permutation
+        final VecInt selectors = new VecInt(permutations.length);
+        final VecInt[][] supports = new VecInt[n][n + 1];
+        for (int permutation : permutations) {
+            final int selector = nextVar++;
+            selectors.push(selector);
+            for (int k = 0; k < n; k++) {
+                final int val = PermutationTable.value(permutation, n, k);
+                solver.addClause(new VecInt(new int[]{-selector, cells[k][val - 1]}));
+                if (val < n) {
+                    solver.addClause(new VecInt(new int[]{-selector, -cells[k][val]}));
+                }
+                if (supports[k][val] == null) {
+                    supports[k][val] = new VecInt();
+                }
+                supports[k][val].push(selector);
+            }
+        }
+        // Au moins une permutation est choisie
+        solver.addClause(selectors);
+        // Support: si la case a la valeur val, une des permutations ayant val à cette position est choisie
+        for (int k = 0; k < n; k++) {
+            for (int val = 1; val <= n; val++) {
+                if (supports[k][val] != null) {
+                    final VecInt clause = supports[k][val];
+                    clause.push(-cells[k][val - 1]);
+                    if (val < n) {
+                        clause.push(cells[k][val]);
+                    }
+                    solver.addClause(clause);
+                }
+            }
+        }
+        encoded[startDir][line] |= startClue > 0;
+        encoded[endDir][line] |= endClue > 0;
+    }
+    
+    /**
+     * Ajoute les déductions immédiates des indices utilisées par le mode paresseux:
+     * un indice 1 impose N dans la première case, un indice N impose la ligne 1..N
+     */
+    private void addClueDeductions() throws ContradictionException {
+        for (int dir = 0; dir < 4; dir++) {
+            for (int line = 0; line < n; line++) {
+                final int clue = constraints[dir][line];
+                if (deduced[dir][line] || encoded[dir][line]) {
+                    continue;
+                }
+                deduced[dir][line] = clue > 0;
+                if (clue == 1) {
+                    addCellValue(dir, line, 0, n);
+                } else if (clue == n) {
+                    for (int k = 0; k < n; k++) {
+                        addCellValue(dir, line, k, k + 1);
+                    }
+                }
+            }
+        }
+    }
+    
+    /**
+     * Impose la valeur de la k-ième case d'une ligne, vue depuis une direction
+     */
+    private void addCellValue(int dir, int line, int k, int val) throws ContradictionException {
+        final int[] cell = switch (dir) {
+            case DIRECTION_LEFT -> getOrderVars(line, k);
+            case DIRECTION_RIGHT -> getOrderVars(line, n - 1 - k);
+            case DIRECTION_UP -> getOrderVars(k, line);
+            default -> getOrderVars(n - 1 - k, line);
+        };
+        // valeur >= val et, si val < N, pas valeur > val
+        solver.addClause(new VecInt(new int[]{cell[val - 1]}));
+        if (val < n) {
+            solver.addClause(new VecInt(new int[]{-cell[val]}));
         }
     }
     
@@ -293,82 +990,97 @@ public class SkyscraperSolver {
      * Contrainte de visibilité depuis la gauche pour une ligne
      */
     private void addVisibilityLeft(int row, int expected) throws ContradictionException {
-        // visible[0][row][0] est toujours vrai (premier élément toujours visible)
-        solver.addClause(new VecInt(new int[]{visible[0][row][0]}));
+        // visible(0, row, 0) est toujours vrai (premier élément toujours visible)
+        solver.addClause(new VecInt(new int[]{visible(0, row, 0)}));
         
         for (int j = 1; j < n; j++) {
-            // visible[0][row][j] <=> cell[row][j] > max(cell[row][0..j-1])
+            // visible(0, row, j) <=> cell[row][j] > max(cell[row][0..j-1])
             // Simplifié: visible ssi pour tout k < j, cell[row][j] > cell[row][k]
             addVisibilityLogic(0, row, j, row, 0, j-1, true);
         }
         
-        // Contrainte de cardinalité: somme des visible[0][row][*] = expected
-        addCardinalityConstraint(visible[0][row], expected);
+        // Contrainte de cardinalité: somme des visible(0, row, *) = expected
+        addCardinalityConstraint(getVisibleVars(0, row), expected);
     }
     
     /**
      * Contrainte de visibilité depuis la droite pour une ligne
      */
     private void addVisibilityRight(int row, int expected) throws ContradictionException {
-        solver.addClause(new VecInt(new int[]{visible[1][row][n-1]}));
+        solver.addClause(new VecInt(new int[]{visible(1, row, n-1)}));
         
         for (int j = n-2; j >= 0; j--) {
             addVisibilityLogic(1, row, j, row, j+1, n-1, true);
         }
         
-        addCardinalityConstraint(visible[1][row], expected);
+        addCardinalityConstraint(getVisibleVars(1, row), expected);
     }
     
     /**
      * Contrainte de visibilité depuis le haut pour une colonne
      */
     private void addVisibilityTop(int col, int expected) throws ContradictionException {
-        solver.addClause(new VecInt(new int[]{visible[2][col][0]}));
+        solver.addClause(new VecInt(new int[]{visible(2, col, 0)}));
         
         for (int i = 1; i < n; i++) {
             addVisibilityLogic(2, col, i, col, 0, i-1, false);
         }
         
-        addCardinalityConstraint(visible[2][col], expected);
+        addCardinalityConstraint(getVisibleVars(2, col), expected);
     }
     
     /**
      * Contrainte de visibilité depuis le bas pour une colonne
      */
     private void addVisibilityBottom(int col, int expected) throws ContradictionException {
-        solver.addClause(new VecInt(new int[]{visible[3][col][n-1]}));
+        solver.addClause(new VecInt(new int[]{visible(3, col, n-1)}));
         
         for (int i = n-2; i >= 0; i--) {
             addVisibilityLogic(3, col, i, col, i+1, n-1, false);
         }
         
-        addCardinalityConstraint(visible[3][col], expected);
+        addCardinalityConstraint(getVisibleVars(3, col), expected);
     }
     
     /**
      * Encode la logique: une case est visible ssi elle est plus grande que toutes les précédentes
+     * <p>Les deux sens de l'équivalence sont nécessaires: sans la réciproque, le solveur peut déclarer
+     * non visible une case qui l'est, et la contrainte de cardinalité ne borne plus le nombre réel
+     * de cases visibles.</p>
      */
     private void addVisibilityLogic(int dir, int line, int pos, int fixedIdx, int start, int end, boolean isRow) 
             throws ContradictionException {
-        // visible[dir][line][pos] => pour tout k in [start..end]: current > cell[k]
+        // visible(dir, line, pos) => pour tout k in [start..end]: current > cell[k]
         
         for (int k = start; k <= end; k++) {
             // Si visible, alors pour chaque valeur v, si current <= v alors prev > v est impossible
             // Approche simplifiée: visible => current est strictement plus grand
             
-            for (int v = 0; v < n-1; v++) {
+            for (int v = 0; v < n; v++) {
                 // visible ∧ prev[k] > v => current > v
                 // ¬visible ∨ ¬cellOrder[prev][v] ∨ cellOrder[current][v]
-                int currentVar = isRow ? cellOrder[fixedIdx][pos][v] : cellOrder[pos][fixedIdx][v];
-                int prevVar = isRow ? cellOrder[fixedIdx][k][v] : cellOrder[k][fixedIdx][v];
+                int currentVar = isRow ? order(fixedIdx, pos, v) : order(pos, fixedIdx, v);
+                int prevVar = isRow ? order(fixedIdx, k, v) : order(k, fixedIdx, v);
                 
                 solver.addClause(new VecInt(new int[]{
-                    -visible[dir][line][pos], 
+                    -visible(dir, line, pos), 
                     -prevVar, 
                     currentVar
                 }));
             }
         }
+        
+        // Réciproque: si current > v et toutes les précédentes <= v, alors visible
+        // ¬cellOrder[current][v] ∨ cellOrder[prev1][v] ∨ ... ∨ cellOrder[prevK][v] ∨ visible
+        for (int v = 0; v < n; v++) {
+            int[] clause = new int[end - start + 3];
+            clause[0] = -(isRow ? order(fixedIdx, pos, v) : order(pos, fixedIdx, v));
+            for (int k = start; k <= end; k++) {
+                clause[k - start + 1] = isRow ? order(fixedIdx, k, v) : order(k, fixedIdx, v);
+            }
+            clause[clause.length - 1] = visible(dir, line, pos);
+            solver.addClause(new VecInt(clause));
+        }
     }
     
     /**
@@ -393,22 +1105,23 @@ public class SkyscraperSolver {
     private void addInitialValues() throws ContradictionException {
         for (int i = 0; i < n; i++) {
             for (int j = 0; j < n; j++) {
-                if (initial[i][j] > 0) {
+                if (initial[i][j] > 0 && !initialAdded[i][j]) {
+                    initialAdded[i][j] = true;
                     int val = initial[i][j];
                     
                     if (val == 1) {
-                        // Valeur 1: ¬cellOrder[i][j][1]
+                        // Valeur 1: ¬order(i, j, 1)
                         if (n > 1) {
-                            solver.addClause(new VecInt(new int[]{-cellOrder[i][j][1]}));
+                            solver.addClause(new VecInt(new int[]{-order(i, j, 1)}));
                         }
                         // For n=1, no constraint needed (always satisfied)
                     } else if (val == n) {
-                        // Valeur N: cellOrder[i][j][N-1]
-                        solver.addClause(new VecInt(new int[]{cellOrder[i][j][n-1]}));
+                        // Valeur N: order(i, j, N-1)
+                        solver.addClause(new VecInt(new int[]{order(i, j, n-1)}));
                     } else {
-                        // Valeur val: cellOrder[i][j][val-1] ∧ ¬cellOrder[i][j][val]
-                        solver.addClause(new VecInt(new int[]{cellOrder[i][j][val-1]}));
-                        solver.addClause(new VecInt(new int[]{-cellOrder[i][j][val]}));
+                        // Valeur val: order(i, j, val-1) ∧ ¬order(i, j, val)
+                        solver.addClause(new VecInt(new int[]{order(i, j, val-1)}));
+                        solver.addClause(new VecInt(new int[]{-order(i, j, val)}));
                     }
                 }
             }
@@ -419,7 +1132,6 @@ public class SkyscraperSolver {
      * Extrait la solution depuis le modèle SAT
      */
     private int[][] extractSolution() {
-        int[] model = solver.model();
         int[][] solution = new int[n][n];
         
         for (int i = 0; i < n; i++) {
@@ -428,14 +1140,7 @@ public class SkyscraperSolver {
                 solution[i][j] = n; // Par défaut, valeur max
                 
                 for (int v = 0; v < n; v++) {
-                    int variable = cellOrder[i][j][v];
-                    boolean isTrue = false;
-                    for (int lit : model) {
-                        if (Math.abs(lit) == variable) {
-                            isTrue = (lit > 0);
-                            break;
-                        }
-                    }
+                    boolean isTrue = solver.model(order(i, j, v));
                     
                     // First FALSE value determines the cell value
                     // cellOrder[v]=false means value is NOT > v, i.e., value <= v
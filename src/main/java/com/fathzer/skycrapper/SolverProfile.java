@@ -0,0 +1,255 @@
+package com.fathzer.skycrapper;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+
+import org.sat4j.minisat.core.ICDCL;
+import org.sat4j.minisat.core.IPhaseSelectionStrategy;
+import org.sat4j.minisat.core.LearnedConstraintsEvaluationType;
+import org.sat4j.minisat.core.RestartStrategy;
+import org.sat4j.minisat.orders.NegativeLiteralSelectionStrategy;
+import org.sat4j.minisat.orders.PhaseInLastLearnedClauseSelectionStrategy;
+import org.sat4j.minisat.orders.PositiveLiteralSelectionStrategy;
+import org.sat4j.minisat.orders.RSATPhaseSelectionStrategy;
+import org.sat4j.minisat.orders.RandomLiteralSelectionStrategy;
+import org.sat4j.minisat.orders.RandomWalkDecorator;
+import org.sat4j.minisat.orders.VarOrderHeap;
+import org.sat4j.minisat.restarts.ArminRestarts;
+import org.sat4j.minisat.restarts.EMARestarts;
+import org.sat4j.minisat.restarts.LubyRestarts;
+import org.sat4j.minisat.restarts.MiniSATRestarts;
+import org.sat4j.minisat.restarts.NoRestarts;
+import org.sat4j.specs.ISolver;
+
+/**
+ * The settings of a {@link SkyscraperSolver}: SAT4J search parameters and encoding options.
+ * <p>A profile is named by a '+' separated list of options (for instance <code>luby-restarts+table</code>), the options
+ * that are not listed keeping their default value. The default profile, that uses SAT4J's default solver, is named <i>default</i>.
+ * The option names are the lower case names of the enum constants below, with '-' instead of '_', plus <i>lazy</i>, <i>table</i> and <i>compact</i>.</p>
+ * <p>The profile used for each grid size by {@link SkyscraperSolver#SkyscraperSolver(int)} is read, when first needed, from
+ * the properties file whose path is the <code>profiles</code> system property, or, if this property is not set, from the
+ * <code>/skyscraper-profiles.properties</code> resource. Its keys are grid sizes, its values are profile names
+ * (see {@link Tuner} to build such a file). Sizes that are not in the file use the default profile.</p>
+ * @param restarts the restart strategy
+ * @param deletion the learned clauses deletion strategy
+ * @param phase the phase selection strategy
+ * @param order the variable order heuristic
+ * @param lazy true to use lazy visibility constraints (see {@link SkyscraperSolver#setLazyVisibility(boolean)})
+ * @param table true to use the permutation table encoding (see {@link SkyscraperSolver#setTableEncoding(boolean)})
+ * @param compact true to use native cardinality constraints for "at most one value" constraints (see {@link SkyscraperSolver#setCompactCardinality(boolean)})
+ */
+public record SolverProfile(Restarts restarts, Deletion deletion, Phase phase, Order order, boolean lazy, boolean table, boolean compact) {
+    /** The default profile. */
+    public static final SolverProfile DEFAULT = new SolverProfile(Restarts.GLUCOSE_RESTARTS, Deletion.LBD2_DELETION, Phase.RSAT_PHASE,
+            Order.ACTIVITY_ORDER, false, false, false);
+
+    private static final String DEFAULT_NAME = "default";
+    private static final String LAZY = "lazy";
+    private static final String TABLE = "table";
+    private static final String COMPACT = "compact";
+
+    private static Map<Integer, SolverProfile> profiles;
+
+    /** The restart strategies. */
+    public enum Restarts {
+        GLUCOSE_RESTARTS, LUBY_RESTARTS, MINISAT_RESTARTS, ARMIN_RESTARTS, EMA_RESTARTS, NO_RESTARTS;
+
+        private RestartStrategy create() {
+            return switch (this) {
+                case LUBY_RESTARTS -> new LubyRestarts();
+                case MINISAT_RESTARTS -> new MiniSATRestarts();
+                case ARMIN_RESTARTS -> new ArminRestarts();
+                case EMA_RESTARTS -> new EMARestarts();
+                case NO_RESTARTS -> new NoRestarts();
+                default -> throw new IllegalStateException("Default restart strategy is not created");
+            };
+        }
+    }
+
+    /** The learned clauses deletion strategies. */
+    public enum Deletion {
+        /** Glucose 2 strategy: literal block distance, updated during propagation (SAT4J default) */
+        LBD2_DELETION,
+        /** Glucose strategy: literal block distance computed when the clause is learned */
+        LBD_DELETION,
+        /** MiniSAT strategy: clause activity */
+        ACTIVITY_DELETION;
+
+        private LearnedConstraintsEvaluationType getType() {
+            return switch (this) {
+                case LBD_DELETION -> LearnedConstraintsEvaluationType.LBD;
+                case ACTIVITY_DELETION -> LearnedConstraintsEvaluationType.ACTIVITY;
+                default -> LearnedConstraintsEvaluationType.LBD2;
+            };
+        }
+    }
+
+    /** The phase selection strategies. */
+    public enum Phase {
+        RSAT_PHASE, POSITIVE_PHASE, NEGATIVE_PHASE, LAST_LEARNED_PHASE, RANDOM_PHASE;
+
+        private IPhaseSelectionStrategy create() {
+            return switch (this) {
+                case POSITIVE_PHASE -> new PositiveLiteralSelectionStrategy();
+                case NEGATIVE_PHASE -> new NegativeLiteralSelectionStrategy();
+                case LAST_LEARNED_PHASE -> new PhaseInLastLearnedClauseSelectionStrategy();
+                case RANDOM_PHASE -> new RandomLiteralSelectionStrategy();
+                default -> new RSATPhaseSelectionStrategy();
+            };
+        }
+    }
+
+    /** The variable order heuristics. */
+    public enum Order {
+        /** Most active variable first (VSIDS) */
+        ACTIVITY_ORDER,
+        /** Most active variable first, with some random decisions */
+        RANDOM_WALK_ORDER;
+    }
+
+    /**
+     * Gets the name of an option.
+     * @param option an option
+     * @return the option's name in profile names
+     */
+    public static String getName(Enum<?> option) {
+        return option.name().toLowerCase(Locale.ROOT).replace('_', '-');
+    }
+
+    /**
+     * Parses a profile name.
+     * @param name a profile name
+     * @return a profile
+     * @throws IllegalArgumentException if the name contains an unknown option
+     */
+    public static SolverProfile parse(String name) {
+        Restarts restarts = DEFAULT.restarts;
+        Deletion deletion = DEFAULT.deletion;
+        Phase phase = DEFAULT.phase;
+        Order order = DEFAULT.order;
+        boolean lazy = DEFAULT.lazy;
+        boolean table = DEFAULT.table;
+        boolean compact = DEFAULT.compact;
+        if (!DEFAULT_NAME.equals(name)) {
+            for (String option : name.split("\\+")) {
+                if (LAZY.equals(option)) {
+                    lazy = true;
+                } else if (TABLE.equals(option)) {
+                    table = true;
+                } else if (COMPACT.equals(option)) {
+                    compact = true;
+                } else if (option.endsWith("-restarts")) {
+                    restarts = valueOf(Restarts.class, option, name);
+                } else if (option.endsWith("-deletion")) {
+                    deletion = valueOf(Deletion.class, option, name);
+                } else if (option.endsWith("-phase")) {
+                    phase = valueOf(Phase.class, option, name);
+                } else if (option.endsWith("-order")) {
+                    order = valueOf(Order.class, option, name);
+                } else {
+                    throw new IllegalArgumentException("Unknown option " + option + " in profile " + name);
+                }
+            }
+        }
+        return new SolverProfile(restarts, deletion, phase, order, lazy, table, compact);
+    }
+
+    private static <T extends Enum<T>> T valueOf(Class<T> type, String option, String name) {
+        try {
+            return Enum.valueOf(type, option.toUpperCase(Locale.ROOT).replace('-', '_'));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown option " + option + " in profile " + name, e);
+        }
+    }
+
+    /**
+     * Gets the profile's name.
+     * @return the '+' separated list of the options that differ from the default profile, <i>default</i> if there's none
+     */
+    @Override
+    public String toString() {
+        final List<String> options = new ArrayList<>();
+        if (restarts != DEFAULT.restarts) options.add(getName(restarts));
+        if (deletion != DEFAULT.deletion) options.add(getName(deletion));
+        if (phase != DEFAULT.phase) options.add(getName(phase));
+        if (order != DEFAULT.order) options.add(getName(order));
+        if (lazy) options.add(LAZY);
+        if (table) options.add(TABLE);
+        if (compact) options.add(COMPACT);
+        return options.isEmpty() ? DEFAULT_NAME : String.join("+", options);
+    }
+
+    /**
+     * Applies the SAT4J search parameters of this profile to a solver.
+     * @param solver a solver created by SAT4J's solver factory
+     */
+    void apply(ISolver solver) {
+        if (!(solver instanceof ICDCL<?> cdcl)) {
+            return;
+        }
+        if (restarts != DEFAULT.restarts) {
+            cdcl.setRestartStrategy(restarts.create());
+        }
+        if (deletion != DEFAULT.deletion) {
+            cdcl.setLearnedConstraintsDeletionStrategy(deletion.getType());
+        }
+        if (phase != DEFAULT.phase || order != DEFAULT.order) {
+            final VarOrderHeap heap = new VarOrderHeap(phase.create());
+            cdcl.setOrder(order == Order.RANDOM_WALK_ORDER ? new RandomWalkDecorator(heap) : heap);
+        }
+    }
+
+    /**
+     * Gets the profile of a grid size.
+     * @param size the grid size
+     * @return the profile defined for this size in the profiles file, the default profile if there's none
+     * @throws UncheckedIOException if the profiles file can't be read
+     * @throws IllegalArgumentException if the profiles file contains an invalid entry
+     */
+    public static synchronized SolverProfile forSize(int size) {
+        if (profiles == null) {
+            profiles = load();
+        }
+        return profiles.getOrDefault(size, DEFAULT);
+    }
+
+    private static Map<Integer, SolverProfile> load() {
+        final Properties properties = new Properties();
+        final String path = System.getProperty("profiles");
+        try (InputStream in = path == null ? SolverProfile.class.getResourceAsStream("/skyscraper-profiles.properties") : Files.newInputStream(Path.of(path))) {
+            if (in != null) {
+                properties.load(in);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return parse(properties);
+    }
+
+    /**
+     * Parses the profiles of a profiles file.
+     * @param properties the content of the file
+     * @return the profiles per grid size
+     * @throws IllegalArgumentException if the file contains an invalid entry
+     */
+    static Map<Integer, SolverProfile> parse(Properties properties) {
+        final Map<Integer, SolverProfile> result = new HashMap<>();
+        for (String key : properties.stringPropertyNames()) {
+            try {
+                result.put(Integer.parseInt(key.trim()), parse(properties.getProperty(key).trim()));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid grid size " + key + " in profiles", e);
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,169 @@
+package com.fathzer.skycrapper;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+import org.sat4j.specs.ContradictionException;
+import org.sat4j.specs.TimeoutException;
+
+/**
+ * An offline tuner that searches, for each grid size of a corpus, the {@link SolverProfile} that solves its puzzles the fastest.
+ * <p>The arguments are the path of the corpus file (see {@link Benchmark}) and, optionally, the path of the profiles file
+ * to write (the profiles are printed on the standard output if it is omitted). The written file can then be used by the
+ * solver with <code>-Dprofiles=path</code>, or copied as <code>skyscraper-profiles.properties</code> in the classpath.</p>
+ * <p>The search is a coordinate descent: starting from the default profile, each option group (restarts, learned clauses deletion,
+ * phase, order, lazy, table and compact) is tried with all its values, the others being fixed, and the best value is kept.
+ * Groups are swept again until no change improves the time by more than {@value #MIN_GAIN} %.</p>
+ */
+public class Tuner {
+    /** The minimum gain, in percent, required to prefer a profile to the current best one (it prevents from following the noise). */
+    private static final int MIN_GAIN = 3;
+    /** The maximum number of sweeps over the option groups. */
+    private static final int MAX_SWEEPS = 3;
+
+    private final int warmup;
+    private final int nbLoops;
+    private final PrintStream log;
+
+    /**
+     * Constructor.
+     * @param warmup the number of resolutions of the corpus before each measure
+     * @param nbLoops the number of resolutions of the corpus per measure
+     * @param log a stream where the progress is printed
+     */
+    Tuner(int warmup, int nbLoops, PrintStream log) {
+        this.warmup = warmup;
+        this.nbLoops = nbLoops;
+        this.log = log;
+    }
+
+    public static void main(String[] args) throws IOException, ContradictionException, TimeoutException {
+        if (args.length < 1 || args.length > 2) {
+            System.err.println("Usage: java [-Dwarmup=1] [-DnbLoops=3] -cp skyscrapper-solver.jar " + Tuner.class.getName() + " corpusFile [profilesFile]");
+            System.exit(1);
+        }
+        final Tuner tuner = new Tuner(Integer.getInteger("warmup", 1), Integer.getInteger("nbLoops", 3), System.err);
+        final Map<Integer, List<InputData>> corpus = Benchmark.readCorpus(Path.of(args[0])).stream()
+                .collect(Collectors.groupingBy(InputData::size, TreeMap::new, Collectors.toList()));
+        final Map<Integer, SolverProfile> profiles = new TreeMap<>();
+        for (Map.Entry<Integer, List<InputData>> entry : corpus.entrySet()) {
+            profiles.put(entry.getKey(), tuner.tune(entry.getValue()));
+        }
+        if (args.length == 2) {
+            try (PrintStream out = new PrintStream(Files.newOutputStream(Path.of(args[1])))) {
+                print(profiles, args[0], out);
+            }
+        } else {
+            print(profiles, args[0], System.out);
+        }
+    }
+
+    /**
+     * Searches the best profile for a set of puzzles.
+     * @param puzzles the puzzles, usually of the same size
+     * @return the profile that solves them the fastest
+     */
+    SolverProfile tune(List<InputData> puzzles) throws ContradictionException, TimeoutException {
+        final int size = puzzles.get(0).size();
+        final List<List<String>> groups = getOptionGroups(size);
+        // The selected option of each group ("" for the default one)
+        final String[] selected = new String[groups.size()];
+        Arrays.fill(selected, "");
+        SolverProfile best = SolverProfile.DEFAULT;
+        long bestTime = measure(puzzles, best);
+        log.println(size + "x" + size + ": " + best + " " + bestTime / 1000 + " µs");
+        boolean improved = true;
+        for (int sweep = 0; improved && sweep < MAX_SWEEPS; sweep++) {
+            improved = false;
+            for (int group = 0; group < groups.size(); group++) {
+                final String current = selected[group];
+                for (String option : groups.get(group)) {
+                    if (option.equals(current)) {
+                        continue;
+                    }
+                    selected[group] = option;
+                    final SolverProfile candidate = toProfile(selected);
+                    final long time = measure(puzzles, candidate);
+                    log.println(size + "x" + size + ": " + candidate + " " + time / 1000 + " µs");
+                    if (time * 100 < bestTime * (100 - MIN_GAIN)) {
+                        best = candidate;
+                        bestTime = time;
+                        improved = true;
+                    }
+                }
+                selected[group] = getOption(groups.get(group), best);
+            }
+        }
+        log.println(size + "x" + size + ": best is " + best);
+        return best;
+    }
+
+    private static List<List<String>> getOptionGroups(int size) {
+        final List<List<String>> groups = new ArrayList<>();
+        groups.add(getOptions(SolverProfile.Restarts.values()));
+        groups.add(getOptions(SolverProfile.Deletion.values()));
+        groups.add(getOptions(SolverProfile.Phase.values()));
+        groups.add(getOptions(SolverProfile.Order.values()));
+        groups.add(List.of("", "lazy"));
+        if (size <= PermutationTable.MAX_SIZE) {
+            groups.add(List.of("", "table"));
+        }
+        groups.add(List.of("", "compact"));
+        return groups;
+    }
+
+    private static List<String> getOptions(Enum<?>[] values) {
+        final List<String> options = new ArrayList<>();
+        // The first value is the default one
+        options.add("");
+        for (int i = 1; i < values.length; i++) {
+            options.add(SolverProfile.getName(values[i]));
+        }
+        return options;
+    }
+
+    private static SolverProfile toProfile(String[] selected) {
+        final String name = Arrays.stream(selected).filter(option -> !option.isEmpty()).collect(Collectors.joining("+"));
+        return name.isEmpty() ? SolverProfile.DEFAULT : SolverProfile.parse(name);
+    }
+
+    private static String getOption(List<String> group, SolverProfile profile) {
+        final List<String> options = Arrays.asList(profile.toString().split("\\+"));
+        return group.stream().filter(options::contains).findAny().orElse("");
+    }
+
+    /**
+     * Measures the time needed to solve puzzles with a profile.
+     * @return the mean time, in nanoseconds, to solve all the puzzles
+     */
+    private long measure(List<InputData> puzzles, SolverProfile profile) throws ContradictionException, TimeoutException {
+        final Benchmark.Configuration configuration = new Benchmark.Configuration(profile.toString(), profile, false);
+        for (int i = 0; i < warmup; i++) {
+            Benchmark.solveAll(puzzles, configuration, null, 0);
+        }
+        final long start = System.nanoTime();
+        for (int i = 0; i < nbLoops; i++) {
+            Benchmark.solveAll(puzzles, configuration, null, 0);
+        }
+        return (System.nanoTime() - start) / Math.max(1, nbLoops);
+    }
+
+    /**
+     * Prints profiles in the format read by {@link SolverProfile#forSize(int)}.
+     * @param profiles the profiles per grid size
+     * @param corpus the name of the corpus the profiles were tuned on
+     * @param out the output stream
+     */
+    static void print(Map<Integer, SolverProfile> profiles, String corpus, PrintStream out) {
+        out.println("# Solver profiles per grid size, tuned on " + corpus);
+        profiles.forEach((size, profile) -> out.println(size + "=" + profile));
+    }
+}
@@ -0,0 +1,71 @@
+package com.fathzer.skycrapper;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.sat4j.specs.ContradictionException;
+import org.sat4j.specs.TimeoutException;
+
+class BatchTest {
+    private static final String INPUT = """
+            # A comment
+            4 3 2 1 1 2 2 2 4 3 2 1 1 2 2 2
+            1 1 1 1
+
+            1 2 3
+            0 0 0 0 0 0 0 0 3 0 3 0
+            0 0 0 0 0 0 0 0 0 0 0 0
+            """;
+
+    @Test
+    void testShardsAndMerge(@TempDir Path dir) throws IOException, ContradictionException, TimeoutException {
+        final Path input = dir.resolve("input.txt");
+        Files.writeString(input, INPUT);
+        assertEquals(5, Batch.countRecords(input));
+
+        final Path shard0 = dir.resolve("shard0.txt");
+        final Path shard1 = dir.resolve("shard1.txt");
+        Batch.run(input, shard0, 0, 2, false);
+        Batch.run(input, shard1, 1, 2, false);
+        assertEquals(List.of(0, 2, 4), Files.readAllLines(shard0).stream().map(Batch::getIndex).toList());
+        assertEquals(List.of(1, 3), Files.readAllLines(shard1).stream().map(Batch::getIndex).toList());
+
+        final List<String> merged = BatchMerge.merge(5, List.of(shard1, shard0));
+        assertEquals(5, merged.size());
+        // The first row is forced by the left clue 4
+        assertTrue(merged.get(0).startsWith("0\tSOLVED\t1 2 3 4 "));
+        assertEquals("1\tSOLVED\t1", merged.get(1));
+        assertTrue(merged.get(2).startsWith("2\tERROR\t"));
+        // Left clues 3 of the first and last rows both force 1 in the first column
+        assertEquals("3\tUNSAT\tDUPLICATE_VALUE", merged.get(3));
+        assertTrue(merged.get(4).startsWith("4\tSOLVED\t"));
+
+        // A missing shard is detected
+        final IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> BatchMerge.merge(5, List.of(shard0)));
+        assertTrue(e.getMessage().contains("2 missing record(s) [1, 3]"));
+    }
+
+    @Test
+    void testResume(@TempDir Path dir) throws IOException, ContradictionException, TimeoutException {
+        final Path input = dir.resolve("input.txt");
+        Files.writeString(input, INPUT);
+        final Path expected = dir.resolve("expected.txt");
+        Batch.run(input, expected, 0, 1, false);
+
+        // Simulates a batch killed while writing its third record
+        final Path output = dir.resolve("output.txt");
+        final List<String> lines = Files.readAllLines(expected);
+        Files.writeString(output, lines.get(0) + "\n" + lines.get(1) + "\n" + lines.get(2).substring(0, 3));
+        assertEquals(2, Batch.getResumeIndex(output));
+        assertEquals(lines.subList(0, 2), Files.readAllLines(output));
+
+        Batch.run(input, output, 0, 1, true);
+        assertEquals(lines, Files.readAllLines(output));
+    }
+}
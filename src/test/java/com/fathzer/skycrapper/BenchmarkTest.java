@@ -0,0 +1,74 @@
+package com.fathzer.skycrapper;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.sat4j.specs.ContradictionException;
+import org.sat4j.specs.TimeoutException;
+
+class BenchmarkTest {
+
+    @Test
+    void testPercentile() {
+        final long[] sorted = new long[100];
+        for (int i = 0; i < sorted.length; i++) {
+            sorted[i] = i + 1;
+        }
+        assertEquals(50, Benchmark.percentile(sorted, 50));
+        assertEquals(90, Benchmark.percentile(sorted, 90));
+        assertEquals(99, Benchmark.percentile(sorted, 99));
+        assertEquals(100, Benchmark.percentile(sorted, 100));
+        assertEquals(7, Benchmark.percentile(new long[] {7}, 50));
+        assertEquals(0, Benchmark.percentile(new long[0], 99));
+    }
+
+    @Test
+    void testConfiguration() {
+        assertEquals(new Benchmark.Configuration("default", SolverProfile.DEFAULT, false), Benchmark.Configuration.parse("default"));
+        assertEquals(new Benchmark.Configuration("lazy+table", SolverProfile.parse("lazy+table"), false), Benchmark.Configuration.parse("lazy+table"));
+        assertEquals(new Benchmark.Configuration("cube", SolverProfile.DEFAULT, true), Benchmark.Configuration.parse("cube"));
+        assertEquals(new Benchmark.Configuration("luby-restarts+cube", SolverProfile.parse("luby-restarts"), true),
+                Benchmark.Configuration.parse("luby-restarts+cube"));
+        assertThrows(IllegalArgumentException.class, () -> Benchmark.Configuration.parse("fast"));
+    }
+
+    @Test
+    void testReadCorpus(@TempDir Path dir) throws IOException {
+        final Path file = dir.resolve("corpus.txt");
+        Files.writeString(file, "# comment\n4 3 2 1 1 2 2 2 4 3 2 1 1 2 2 2\n\n  1 1 1 1  \n");
+        final List<InputData> corpus = Benchmark.readCorpus(file);
+        assertEquals(2, corpus.size());
+        assertEquals(4, corpus.get(0).size());
+        assertEquals(1, corpus.get(1).size());
+    }
+
+    @Test
+    void testRefusedPuzzles() throws ContradictionException, TimeoutException {
+        final InputDataParser parser = new InputDataParser();
+        // A 300x300 grid exceeds any memory budget
+        final InputData huge = parser.parse("0 ".repeat(4 * 300));
+        final List<InputData> corpus = List.of(parser.parse("4 3 2 1 1 2 2 2 4 3 2 1 1 2 2 2"), huge, parser.parse("1 1 1 1"));
+        final long[] latencies = new long[corpus.size()];
+        assertEquals(new Benchmark.Counts(2, 1), Benchmark.solveAll(corpus, Benchmark.Configuration.parse("default"), latencies, 0));
+        assertTrue(latencies[2] > 0, "The puzzles after a refused one should be solved");
+    }
+
+    @Test
+    void testPrintJson() {
+        assertEquals("\"lazy+table\"", Benchmark.toJsonString("lazy+table"));
+        assertEquals("\"a\\\"b\\\\c\\n\\u0001\"", Benchmark.toJsonString("a\"b\\c\n\u0001"));
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final Benchmark.Result result = new Benchmark.Result("bad\"name", 1, 1, 0, 1, 2, 3, 4, 5, 1.5, 100, 0);
+        Benchmark.printJson(List.of(result), new PrintStream(bytes, true, StandardCharsets.UTF_8));
+        assertTrue(bytes.toString(StandardCharsets.UTF_8).contains("{\"configuration\": \"bad\\\"name\", \"puzzles\": 1,"));
+    }
+}
@@ -0,0 +1,111 @@
+package com.fathzer.skycrapper;
+
+import static com.fathzer.skycrapper.ClueChecker.Reason.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+import org.sat4j.specs.ContradictionException;
+import org.sat4j.specs.TimeoutException;
+
+class ClueCheckerTest {
+    private final InputDataParser parser = new InputDataParser();
+
+    @Test
+    void testValid() {
+        assertNull(ClueChecker.check(parser.parse("4 3 2 1 1 2 2 2 4 3 2 1 1 2 2 2")));
+        assertNull(ClueChecker.check(parser.parse("9 8 7 6 5 4 3 2 1 1 2 2 2 2 2 2 2 2 9 8 7 6 5 4 3 2 1 1 2 2 2 2 2 2 2 2")));
+        assertNull(ClueChecker.check(parser.parse("1 1 1 1")));
+        assertNull(ClueChecker.check(parser.parse("0 0 0 0 0 0 0 0 0 0 0 0 0 0 0 0")));
+        // Two clues of 1 at the same corner both force 4 in the corner cell
+        assertNull(ClueChecker.check(parser.parse("1 0 0 0 0 0 0 0 1 0 0 0 0 0 0 0")));
+    }
+
+    @Test
+    void testNoFalsePositive() {
+        // Every 4x4 latin square's clues, with or without some of them, must pass the check
+        checkLatinSquares(new int[4][4], 0);
+    }
+
+    private void checkLatinSquares(int[][] grid, int cell) {
+        final int n = grid.length;
+        if (cell == n * n) {
+            final int[] clues = new int[4 * n];
+            final int[] directions = {SkyscraperSolver.DIRECTION_UP, SkyscraperSolver.DIRECTION_DOWN, SkyscraperSolver.DIRECTION_LEFT, SkyscraperSolver.DIRECTION_RIGHT};
+            for (int d = 0; d < 4; d++) {
+                for (int line = 0; line < n; line++) {
+                    clues[d * n + line] = SkyscraperSolver.countVisible(grid, directions[d], line);
+                }
+            }
+            for (int mask = 0; mask < 1 << 4; mask++) {
+                // Removes the clues of the sides in mask
+                final StringBuilder input = new StringBuilder();
+                for (int i = 0; i < clues.length; i++) {
+                    input.append((mask & (1 << (i / n))) != 0 ? 0 : clues[i]).append(' ');
+                }
+                assertNull(ClueChecker.check(parser.parse(input.toString())), input.toString());
+            }
+            return;
+        }
+        final int row = cell / n;
+        final int col = cell % n;
+        for (int val = 1; val <= n; val++) {
+            boolean free = true;
+            for (int k = 0; k < n; k++) {
+                free = free && (k >= col || grid[row][k] != val) && (k >= row || grid[k][col] != val);
+            }
+            if (free) {
+                grid[row][col] = val;
+                checkLatinSquares(grid, cell + 1);
+            }
+        }
+        grid[row][col] = 0;
+    }
+
+    @Test
+    void testOppositeClues() {
+        // left and right clues of the first row are 3 and 3
+        assertEquals(OPPOSITE_CLUES, ClueChecker.check(parser.parse("0 0 0 0 0 0 0 0 3 0 0 0 3 0 0 0")));
+        // up and down clues of the second column are 1 and 1
+        assertEquals(OPPOSITE_CLUES, ClueChecker.check(parser.parse("0 1 0 0 0 1 0 0 0 0 0 0 0 0 0 0")));
+    }
+
+    @Test
+    void testConflictingCell() {
+        // Left clue 1 of the first row forces 4 in the top left corner, up clue 4 of the first column forces 1
+        assertEquals(CONFLICTING_CELL, ClueChecker.check(parser.parse("4 0 0 0 0 0 0 0 1 0 0 0 0 0 0 0")));
+    }
+
+    @Test
+    void testDuplicateValue() {
+        // Two up clues of 4
+        assertEquals(DUPLICATE_VALUE, ClueChecker.check(parser.parse("4 4 0 0 0 0 0 0 0 0 0 0 0 0 0 0")));
+        // Left clues of 1 on the first two rows force 4 twice in the first column
+        assertEquals(DUPLICATE_VALUE, ClueChecker.check(parser.parse("0 0 0 0 0 0 0 0 1 1 0 0 0 0 0 0")));
+    }
+
+    @Test
+    void testForbiddenValue() {
+        // Left clue 1 of the first row forces 4 in the top left corner, up clue 2 of the first column forbids it
+        assertEquals(FORBIDDEN_VALUE, ClueChecker.check(parser.parse("2 0 0 0 0 0 0 0 1 0 0 0 0 0 0 0")));
+    }
+
+    @Test
+    void testNoPlaceForMax() {
+        // Left clue 3 of the first row forbids 4 in its first 2 cells, up clues 2 of the last columns forbid it in the last ones
+        assertEquals(NO_PLACE_FOR_MAX, ClueChecker.check(parser.parse("0 0 2 2 0 0 0 0 3 0 0 0 0 0 0 0")));
+    }
+
+    @Test
+    void testSolversSkipRejectedClues() throws ContradictionException, TimeoutException {
+        // A 300x300 grid exceeds any memory budget, so the solvers would refuse it if they encoded it
+        final StringBuilder input = new StringBuilder();
+        for (int i = 0; i < 4 * 300; i++) {
+            input.append(i == 0 || i == 300 ? "1 " : "0 ");
+        }
+        final InputData data = parser.parse(input.toString());
+        assertEquals(OPPOSITE_CLUES, ClueChecker.check(data));
+        assertNull(Main.solve(data));
+        assertNull(Benchmark.Configuration.parse("default").solve(data));
+        assertNull(Benchmark.Configuration.parse("lazy+compact+cube").solve(data));
+    }
+}
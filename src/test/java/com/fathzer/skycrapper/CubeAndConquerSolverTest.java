@@ -0,0 +1,151 @@
+package com.fathzer.skycrapper;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.sat4j.specs.ContradictionException;
+import org.sat4j.specs.TimeoutException;
+
+class CubeAndConquerSolverTest {
+    private static ForkJoinPool pool;
+
+    @BeforeAll
+    static void init() {
+        pool = new ForkJoinPool(4);
+    }
+
+    @AfterAll
+    static void shutdown() {
+        pool.shutdown();
+    }
+
+    @Test
+    void testSolve() throws TimeoutException {
+        final InputData data = new InputDataParser().parse("9 8 7 6 5 4 3 2 1 1 2 2 2 2 2 2 2 2 9 8 7 6 5 4 3 2 1 1 2 2 2 2 2 2 2 2");
+        final int[][] solution = new CubeAndConquerSolver(() -> Main.newSolver(data, SolverProfile.DEFAULT), pool).solve();
+        assertNotNull(solution, "Solution should exist");
+        for (int line = 0; line < data.size(); line++) {
+            assertEquals(data.left()[line], SkyscraperSolver.countVisible(solution, SkyscraperSolver.DIRECTION_LEFT, line));
+            assertEquals(data.right()[line], SkyscraperSolver.countVisible(solution, SkyscraperSolver.DIRECTION_RIGHT, line));
+            assertEquals(data.up()[line], SkyscraperSolver.countVisible(solution, SkyscraperSolver.DIRECTION_UP, line));
+            assertEquals(data.down()[line], SkyscraperSolver.countVisible(solution, SkyscraperSolver.DIRECTION_DOWN, line));
+        }
+    }
+
+    @Test
+    void testNoSolution() throws TimeoutException {
+        // Clues of 3 on both sides of a 4 cells row
+        final InputData data = new InputDataParser().parse("0 0 0 0 0 0 0 0 3 0 0 0 3 0 0 0");
+        assertNull(new CubeAndConquerSolver(() -> Main.newSolver(data, SolverProfile.DEFAULT), pool).solve());
+    }
+
+    @Test
+    void testMemoryBudgetIsShared() throws TimeoutException {
+        final InputData data = new InputDataParser().parse("9 8 7 6 5 4 3 2 1 1 2 2 2 2 2 2 2 2 9 8 7 6 5 4 3 2 1 1 2 2 2 2 2 2 2 2");
+        // Enough for 4 compact copies, or for one eager copy
+        final long budget = 4 * SkyscraperSolver.estimateMemory(9, true, false);
+        final List<SkyscraperSolver> solvers = new CopyOnWriteArrayList<>();
+        final int[][] solution = new CubeAndConquerSolver(() -> {
+            final SkyscraperSolver solver = Main.newSolver(data, SolverProfile.DEFAULT);
+            solver.setMemoryBudget(budget);
+            solvers.add(solver);
+            return solver;
+        }, pool).solve();
+        assertNotNull(solution, "Solution should exist");
+        // The first solver only computes the cubes, the others are the copies of the threads
+        assertTrue(solvers.size() > 1);
+        final List<SkyscraperSolver> copies = solvers.subList(1, solvers.size());
+        for (SkyscraperSolver solver : copies) {
+            assertEquals(budget / 4, solver.getMemoryBudget());
+            assertFalse(solver.isLazyVisibility(), "Compact is enough for each copy");
+        }
+        // Copies interrupted before their first search are never encoded, but the one that found the solution was
+        assertTrue(copies.stream().anyMatch(SkyscraperSolver::isCompactCardinality), "Copies should be downgraded to compact");
+    }
+
+    @Test
+    void testSolverCreatedAfterSolution() throws TimeoutException, InterruptedException {
+        // Without clues, every cube has a solution
+        final ForkJoinPool twoThreads = new ForkJoinPool(2);
+        final CountDownLatch lateCreation = new CountDownLatch(1);
+        final CountDownLatch solved = new CountDownLatch(1);
+        final AtomicInteger created = new AtomicInteger();
+        final AtomicBoolean lateSearch = new AtomicBoolean();
+        try {
+            final int[][] solution = new CubeAndConquerSolver(() -> {
+                final int index = created.getAndIncrement();
+                if (index == 0) {
+                    // This solver only computes the cubes
+                    return new SkyscraperSolver(6, SolverProfile.DEFAULT);
+                }
+                if (index == 1) {
+                    // This one waits for the other thread to create its solver before finding the solution
+                    return new SkyscraperSolver(6, SolverProfile.DEFAULT) {
+                        @Override
+                        int[][] solve(int[][] assumptions) throws ContradictionException, TimeoutException {
+                            await(lateCreation);
+                            return super.solve(assumptions);
+                        }
+                    };
+                }
+                // The other thread's solver is created after the solution is found
+                lateCreation.countDown();
+                await(solved);
+                return new SkyscraperSolver(6, SolverProfile.DEFAULT) {
+                    @Override
+                    int[][] solve(int[][] assumptions) throws ContradictionException, TimeoutException {
+                        lateSearch.set(true);
+                        return super.solve(assumptions);
+                    }
+                };
+            }, twoThreads).solve();
+            assertNotNull(solution, "Solution should exist");
+            solved.countDown();
+            twoThreads.shutdown();
+            assertTrue(twoThreads.awaitTermination(10, TimeUnit.SECONDS));
+            assertEquals(3, created.get());
+            assertFalse(lateSearch.get(), "A solver created after the solution should not search");
+        } finally {
+            solved.countDown();
+            twoThreads.shutdownNow();
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Test
+    void testCubes() {
+        final SkyscraperSolver solver = new SkyscraperSolver(5);
+        solver.setVisibilityConstraint(SkyscraperSolver.DIRECTION_UP, 2, 4);
+        final int[][][] cubes = CubeAndConquerSolver.getCubes(solver, 4);
+        // Column 2 is the most constrained line, its candidates are {1,2}, {1,2,3}, {1,2,3,4}, {1,2,3,4,5}, {1,2,3,4,5}
+        // 2 values for the first cell, then 2 for the second one: 4 cubes
+        assertEquals(4, cubes.length);
+        final Set<String> distinct = new HashSet<>();
+        for (int[][] cube : cubes) {
+            assertEquals(2, cube.length);
+            assertArrayEquals(new int[] {0, 2}, new int[] {cube[0][0], cube[0][1]});
+            assertArrayEquals(new int[] {1, 2}, new int[] {cube[1][0], cube[1][1]});
+            assertNotEquals(cube[0][2], cube[1][2]);
+            assertTrue(distinct.add(cube[0][2] + "/" + cube[1][2]));
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.fathzer.skycrapper;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+class PermutationTableTest {
+
+    @Test
+    void testCounts() {
+        // All permutations of 1..n when there's no clue
+        assertEquals(24, PermutationTable.get(4, 0, 0).length);
+        assertEquals(362880, PermutationTable.get(9, 0, 0).length);
+        // Only 1..n is consistent with a clue of n
+        assertEquals(1, PermutationTable.get(4, 4, 0).length);
+        assertEquals(1, PermutationTable.get(4, 4, 1).length);
+        assertEquals(0, PermutationTable.get(4, 4, 2).length);
+        // Opposite clues can't sum to more than n+1
+        assertEquals(0, PermutationTable.get(4, 3, 3).length);
+        // 1 4 3 2, 2 4 3 1 and 3 4 2 1 are the only ones with 2 visible from left and 3 from right
+        assertEquals(3, PermutationTable.get(4, 2, 3).length);
+    }
+
+    @Test
+    void testPermutations() {
+        final int n = 5;
+        for (int a = 0; a <= n; a++) {
+            for (int b = 0; b <= n; b++) {
+                final Set<String> distinct = new HashSet<>();
+                for (int packed : PermutationTable.get(n, a, b)) {
+                    final int[][] grid = new int[n][n];
+                    final boolean[] seen = new boolean[n + 1];
+                    for (int k = 0; k < n; k++) {
+                        grid[0][k] = PermutationTable.value(packed, n, k);
+                        assertFalse(seen[grid[0][k]]);
+                        seen[grid[0][k]] = true;
+                    }
+                    assertTrue(distinct.add(Arrays.toString(grid[0])));
+                    if (a > 0) {
+                        assertEquals(a, SkyscraperSolver.countVisible(grid, SkyscraperSolver.DIRECTION_LEFT, 0));
+                    }
+                    if (b > 0) {
+                        assertEquals(b, SkyscraperSolver.countVisible(grid, SkyscraperSolver.DIRECTION_RIGHT, 0));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void testInvalidArguments() {
+        assertThrows(IllegalArgumentException.class, () -> PermutationTable.get(0, 0, 0));
+        assertThrows(IllegalArgumentException.class, () -> PermutationTable.get(10, 0, 0));
+        assertThrows(IllegalArgumentException.class, () -> PermutationTable.get(4, 5, 0));
+        assertThrows(IllegalArgumentException.class, () -> PermutationTable.get(4, 0, -1));
+    }
+}
@@ -1,6 +1,10 @@
 package com.fathzer.skycrapper;
 
+import java.io.IOException;
+import java.nio.file.Path;
+
 import org.junit.jupiter.api.Test;
+import org.sat4j.minisat.orders.RandomWalkDecorator;
 import org.sat4j.specs.ContradictionException;
 import org.sat4j.specs.TimeoutException;
 
@@ -48,6 +52,227 @@ class SkyscraperSolverTest {
         // Test with the original failing input: "4 3 2 1 1 2 2 2 4 3 2 1 1 2 2 2"
         // up=[4,3,2,1], down=[1,2,2,2], left=[4,3,2,1], right=[1,2,2,2]
         SkyscraperSolver solver = new SkyscraperSolver(4);
+        int[][] constraints = set4x4Constraints(solver);
+        
+        int[][] solution = solver.solve();
+        
+        assertNotNull(solution, "Solution should exist");
+        assertValidSudoku(solution);
+        assertVisibilityConstraints(solution, constraints);
+    }
+    
+    @Test
+    void test4x4LazyVisibilityConstraints() throws ContradictionException, TimeoutException {
+        SkyscraperSolver solver = new SkyscraperSolver(4);
+        solver.setLazyVisibility(true);
+        int[][] constraints = set4x4Constraints(solver);
+        
+        int[][] solution = solver.solve();
+        
+        assertNotNull(solution, "Solution should exist");
+        assertValidSudoku(solution);
+        assertVisibilityConstraints(solution, constraints);
+    }
+    
+    @Test
+    void test9x9VisibilityConstraints() throws ContradictionException, TimeoutException {
+        int[][] constraints = new int[4][];
+        constraints[SkyscraperSolver.DIRECTION_UP] = new int[] {9, 8, 7, 6, 5, 4, 3, 2, 1};
+        constraints[SkyscraperSolver.DIRECTION_DOWN] = new int[] {1, 2, 2, 2, 2, 2, 2, 2, 2};
+        constraints[SkyscraperSolver.DIRECTION_LEFT] = new int[] {9, 8, 7, 6, 5, 4, 3, 2, 1};
+        constraints[SkyscraperSolver.DIRECTION_RIGHT] = new int[] {1, 2, 2, 2, 2, 2, 2, 2, 2};
+        for (int mode = 0; mode < 4; mode++) {
+            SkyscraperSolver solver = new SkyscraperSolver(9);
+            solver.setLazyVisibility((mode & 1) != 0);
+            solver.setTableEncoding((mode & 2) != 0);
+            for (int dir = 0; dir < 4; dir++) {
+                for (int i = 0; i < 9; i++) {
+                    solver.setVisibilityConstraint(dir, i, constraints[dir][i]);
+                }
+            }
+            
+            int[][] solution = solver.solve();
+            
+            assertNotNull(solution, "Solution should exist");
+            assertValidSudoku(solution);
+            assertVisibilityConstraints(solution, constraints);
+        }
+    }
+    
+    @Test
+    void test4x4TableEncoding() throws ContradictionException, TimeoutException {
+        SkyscraperSolver solver = new SkyscraperSolver(4);
+        solver.setTableEncoding(true);
+        int[][] constraints = set4x4Constraints(solver);
+        
+        int[][] solution = solver.solve();
+        
+        assertNotNull(solution, "Solution should exist");
+        assertValidSudoku(solution);
+        assertVisibilityConstraints(solution, constraints);
+    }
+    
+    @Test
+    void testTableSelectorsAreDeclared() throws ContradictionException, TimeoutException {
+        SkyscraperSolver solver = new SkyscraperSolver(9, SolverProfile.DEFAULT);
+        solver.setTableEncoding(true);
+        int[][] constraints = setStaircaseConstraints(solver);
+        
+        int[][] solution = solver.solve();
+        
+        assertNotNull(solution, "Solution should exist");
+        assertVisibilityConstraints(solution, constraints);
+        int[] counts = solver.getVariableCounts();
+        assertTrue(counts[1] > SkyscraperSolver.getVariableCount(9), "Selectors should be used");
+        assertTrue(counts[0] >= counts[1], "Selectors should be declared");
+    }
+    
+    @Test
+    void testTableFallbackAfterAddingClue() throws ContradictionException, TimeoutException {
+        // A clue of 2 is compatible with too many permutations of a 9 cells line: the line is encoded by direction
+        SkyscraperSolver solver = new SkyscraperSolver(9, SolverProfile.DEFAULT);
+        solver.setTableEncoding(true);
+        solver.setVisibilityConstraint(SkyscraperSolver.DIRECTION_LEFT, 0, 2);
+        int[][] solution = solver.solve();
+        assertNotNull(solution, "Solution should exist");
+        assertEquals(2, SkyscraperSolver.countVisible(solution, SkyscraperSolver.DIRECTION_LEFT, 0));
+        
+        // Only the new direction is encoded
+        solver.setVisibilityConstraint(SkyscraperSolver.DIRECTION_RIGHT, 0, 3);
+        solution = solver.solve();
+        assertNotNull(solution, "Solution should exist");
+        assertValidSudoku(solution);
+        assertEquals(2, SkyscraperSolver.countVisible(solution, SkyscraperSolver.DIRECTION_LEFT, 0));
+        assertEquals(3, SkyscraperSolver.countVisible(solution, SkyscraperSolver.DIRECTION_RIGHT, 0));
+        int[] counts = solver.getVariableCounts();
+        assertTrue(counts[0] >= counts[1], "Selectors should be declared");
+    }
+    
+    @Test
+    void testReuseAfterAddingClues() throws ContradictionException, TimeoutException {
+        for (int mode = 0; mode < 4; mode++) {
+            SkyscraperSolver solver = new SkyscraperSolver(4);
+            solver.setLazyVisibility((mode & 1) != 0);
+            solver.setTableEncoding((mode & 2) != 0);
+            solver.setVisibilityConstraint(SkyscraperSolver.DIRECTION_LEFT, 0, 4);
+            int[][] solution = solver.solve();
+            assertNotNull(solution, "Solution should exist");
+            assertArrayEquals(new int[] {1, 2, 3, 4}, solution[0]);
+            
+            // Adds the other clues
+            int[][] constraints = set4x4Constraints(solver);
+            solution = solver.solve();
+            assertNotNull(solution, "Solution should exist");
+            assertValidSudoku(solution);
+            assertVisibilityConstraints(solution, constraints);
+            
+            // An already encoded clue can't be changed
+            assertThrows(IllegalStateException.class, () -> solver.setVisibilityConstraint(SkyscraperSolver.DIRECTION_LEFT, 0, 3));
+            
+            // Adds an initial value that contradicts the clues
+            solver.setInitialValue(0, 0, 2);
+            assertNull(solver.solve(), "Should have no solution");
+            assertThrows(IllegalStateException.class, () -> solver.setInitialValue(0, 0, 1));
+        }
+    }
+    
+    @Test
+    void testInterruptBeforeSolve() {
+        SkyscraperSolver solver = new SkyscraperSolver(4);
+        set4x4Constraints(solver);
+        solver.interrupt();
+        assertThrows(TimeoutException.class, solver::solve);
+        assertThrows(TimeoutException.class, () -> solver.solve(new int[][] {{0, 0, 1}}));
+        
+        // The interruption also applies between two searches of the lazy mode
+        SkyscraperSolver lazy = new SkyscraperSolver(4);
+        lazy.setLazyVisibility(true);
+        set4x4Constraints(lazy);
+        lazy.interrupt();
+        assertThrows(TimeoutException.class, lazy::solve);
+    }
+    
+    @Test
+    void testPhaseHint() throws ContradictionException, TimeoutException {
+        int[][] hint = {
+            {3, 1, 4, 2},
+            {4, 2, 3, 1},
+            {1, 3, 2, 4},
+            {2, 4, 1, 3}
+        };
+        SkyscraperSolver solver = new SkyscraperSolver(4);
+        solver.setPhaseHint(hint);
+        // Without constraints, the solver has no reason to leave the hinted grid
+        assertArrayEquals(hint, solver.solve());
+        
+        // The hinted grid is still a solution after adding its own clue
+        solver.setVisibilityConstraint(SkyscraperSolver.DIRECTION_UP, 1, 4);
+        assertArrayEquals(hint, solver.solve());
+    }
+    
+    @Test
+    void testPhaseHintWithFixedPhase() throws ContradictionException, TimeoutException {
+        int[][] hint = {
+            {3, 1, 4, 2},
+            {4, 2, 3, 1},
+            {1, 3, 2, 4},
+            {2, 4, 1, 3}
+        };
+        // These strategies ignore the phases they are initialized with
+        for (String profile : new String[] {"positive-phase", "negative-phase"}) {
+            SkyscraperSolver solver = new SkyscraperSolver(4, SolverProfile.parse(profile));
+            solver.setPhaseHint(hint);
+            assertArrayEquals(hint, solver.solve(), profile);
+        }
+    }
+    
+    @Test
+    void testInvalidPhaseHint() {
+        SkyscraperSolver solver = new SkyscraperSolver(4);
+        assertThrows(IllegalArgumentException.class, () -> solver.setPhaseHint(new int[3][4]));
+        assertThrows(IllegalArgumentException.class, () -> solver.setPhaseHint(new int[][] {new int[4], new int[4], new int[3], new int[4]}));
+        assertThrows(IllegalArgumentException.class, () -> solver.setPhaseHint(new int[][] {{1, 2, 3, 5}, new int[4], new int[4], new int[4]}));
+        assertThrows(IllegalArgumentException.class, () -> solver.setPhaseHint(new int[][] {{1, 2, 3, -1}, new int[4], new int[4], new int[4]}));
+        // Cells with 0 don't guide the solver
+        solver.setPhaseHint(new int[][] {{1, 2, 3, 4}, new int[4], new int[4], new int[4]});
+        solver.setPhaseHint(null);
+    }
+    
+    @Test
+    void testPhaseHintKeepsRandomWalk() throws ContradictionException, TimeoutException {
+        SkyscraperSolver reference = new SkyscraperSolver(4, SolverProfile.DEFAULT);
+        set4x4Constraints(reference);
+        int[][] expected = reference.solve();
+        
+        SkyscraperSolver solver = new SkyscraperSolver(4, SolverProfile.parse("random-walk-order"));
+        set4x4Constraints(solver);
+        solver.setPhaseHint(new int[][] {
+            {4, 3, 2, 1},
+            {3, 4, 1, 2},
+            {2, 1, 4, 3},
+            {1, 2, 3, 4}
+        });
+        assertArrayEquals(expected, solver.solve());
+        // The hinted order is still decorated by the random walk selected by the profile
+        assertInstanceOf(RandomWalkDecorator.class, solver.getVariableOrder());
+        
+        // The next search is hinted by the previous solution, with the same order
+        assertArrayEquals(expected, solver.solve());
+        assertInstanceOf(RandomWalkDecorator.class, solver.getVariableOrder());
+    }
+    
+    @Test
+    void testLazyContradictoryVisibilityConstraints() throws ContradictionException, TimeoutException {
+        // Clues of 3 on both sides of a 4 cells row can't be both satisfied
+        SkyscraperSolver solver = new SkyscraperSolver(4);
+        solver.setLazyVisibility(true);
+        solver.setVisibilityConstraint(SkyscraperSolver.DIRECTION_LEFT, 0, 3);
+        solver.setVisibilityConstraint(SkyscraperSolver.DIRECTION_RIGHT, 0, 3);
+        
+        assertNull(solver.solve(), "Should have no solution");
+    }
+    
+    private int[][] set4x4Constraints(SkyscraperSolver solver) {
         
         // Up constraints (columns from top)
         solver.setVisibilityConstraint(SkyscraperSolver.DIRECTION_UP, 0, 4);
@@ -73,10 +298,12 @@ class SkyscraperSolverTest {
         solver.setVisibilityConstraint(SkyscraperSolver.DIRECTION_RIGHT, 2, 2);
         solver.setVisibilityConstraint(SkyscraperSolver.DIRECTION_RIGHT, 3, 2);
         
-        int[][] solution = solver.solve();
-        
-        assertNotNull(solution, "Solution should exist");
-        assertValidSudoku(solution);
+        int[][] constraints = new int[4][];
+        constraints[SkyscraperSolver.DIRECTION_UP] = new int[] {4, 3, 2, 1};
+        constraints[SkyscraperSolver.DIRECTION_DOWN] = new int[] {1, 2, 2, 2};
+        constraints[SkyscraperSolver.DIRECTION_LEFT] = new int[] {4, 3, 2, 1};
+        constraints[SkyscraperSolver.DIRECTION_RIGHT] = new int[] {1, 2, 2, 2};
+        return constraints;
     }
     
     @Test
@@ -137,11 +364,152 @@ class SkyscraperSolverTest {
         assertValidSudoku(solution);
     }
     
+    @Test
+    void testLargeGrids() throws IOException, ContradictionException, TimeoutException {
+        // Staircase and random puzzles with all their clues
+        for (int n : new int[] {12, 16, 20, 25}) {
+            for (InputData data : Benchmark.readCorpus(Path.of("samples", "large", n + "x" + n + ".txt"))) {
+                SkyscraperSolver solver = Main.newSolver(data, SolverProfile.DEFAULT);
+                if (n >= 16) {
+                    // Large grids are downgraded to the compact encoding
+                    solver.setMemoryBudget(SkyscraperSolver.estimateMemory(n, true, false));
+                }
+                
+                int[][] solution = solver.solve();
+                
+                assertEquals(n >= 16, solver.isCompactCardinality());
+                assertFalse(solver.isLazyVisibility());
+                assertNotNull(solution, "Solution should exist for " + n + "x" + n);
+                assertValidSudoku(solution);
+                assertVisibilityConstraints(solution, getConstraints(data));
+            }
+        }
+    }
+    
+    @Test
+    void testEstimateMemory() {
+        for (int n : new int[] {12, 16, 20, 25}) {
+            long eager = SkyscraperSolver.estimateMemory(n, false, false);
+            long compact = SkyscraperSolver.estimateMemory(n, true, false);
+            long lazy = SkyscraperSolver.estimateMemory(n, true, true);
+            assertTrue(eager > compact && compact > lazy, n + "x" + n);
+            assertTrue(SkyscraperSolver.estimateMemory(n + 1, false, false) > eager);
+        }
+        // Order of magnitude of the pairwise encoding of a 25x25 grid with all its clues
+        long eager = SkyscraperSolver.estimateMemory(25, false, false);
+        assertTrue(eager > 50_000_000L && eager < 500_000_000L, Long.toString(eager));
+    }
+    
+    @Test
+    void testMemoryBudget() throws ContradictionException, TimeoutException {
+        // Contradictory assumptions: the problem is encoded, but not searched
+        int[][] contradiction = {{0, 0, 1}, {0, 1, 1}};
+        long eager = SkyscraperSolver.estimateMemory(20, false, false);
+        long compact = SkyscraperSolver.estimateMemory(20, true, false);
+        long lazy = SkyscraperSolver.estimateMemory(20, true, true);
+        
+        // The eager encoding fits
+        SkyscraperSolver solver = new SkyscraperSolver(20, SolverProfile.DEFAULT);
+        setStaircaseConstraints(solver);
+        solver.setMemoryBudget(eager);
+        assertNull(solver.solve(contradiction));
+        assertFalse(solver.isCompactCardinality());
+        assertFalse(solver.isLazyVisibility());
+        
+        // 1 byte short for the eager encoding: downgraded to compact
+        solver = new SkyscraperSolver(20, SolverProfile.DEFAULT);
+        setStaircaseConstraints(solver);
+        solver.setMemoryBudget(eager - 1);
+        assertNull(solver.solve(contradiction));
+        assertTrue(solver.isCompactCardinality());
+        assertFalse(solver.isLazyVisibility());
+        
+        // 1 byte short for the compact encoding: downgraded to compact and lazy
+        solver = new SkyscraperSolver(20, SolverProfile.DEFAULT);
+        setStaircaseConstraints(solver);
+        solver.setMemoryBudget(compact - 1);
+        assertNull(solver.solve(contradiction));
+        assertTrue(solver.isCompactCardinality());
+        assertTrue(solver.isLazyVisibility());
+        
+        // 1 byte short for the compact and lazy encoding: refused
+        SkyscraperSolver refused = new SkyscraperSolver(20, SolverProfile.DEFAULT);
+        setStaircaseConstraints(refused);
+        refused.setMemoryBudget(lazy - 1);
+        assertThrows(MemoryBudgetExceededException.class, () -> refused.solve(contradiction));
+    }
+    
+    @Test
+    void testSparseCluesMemoryBudget() throws ContradictionException, TimeoutException {
+        int[][] contradiction = {{0, 0, 1}, {0, 1, 1}};
+        long sparse = SkyscraperSolver.estimateMemory(20, 2, false, false);
+        assertTrue(sparse < SkyscraperSolver.estimateMemory(20, true, false), "Few clues should need less memory than a compact encoding of all clues");
+        
+        // Only the clues that are set are counted: the eager encoding fits
+        SkyscraperSolver solver = new SkyscraperSolver(20, SolverProfile.DEFAULT);
+        solver.setVisibilityConstraint(SkyscraperSolver.DIRECTION_LEFT, 3, 5);
+        solver.setVisibilityConstraint(SkyscraperSolver.DIRECTION_UP, 7, 2);
+        solver.setMemoryBudget(sparse);
+        assertNull(solver.solve(contradiction));
+        assertFalse(solver.isCompactCardinality());
+        assertFalse(solver.isLazyVisibility());
+    }
+    
+    @Test
+    void testDowngradedLargeGrids() throws IOException, ContradictionException, TimeoutException {
+        // Puzzles with random solutions and all their clues, solved with the most downgraded encoding the budget allows
+        for (String file : new String[] {"12x12.txt", "16x16.txt"}) {
+            for (InputData data : Benchmark.readCorpus(Path.of("samples", "large", file))) {
+                int n = data.size();
+                SkyscraperSolver solver = Main.newSolver(data, SolverProfile.DEFAULT);
+                solver.setMemoryBudget(SkyscraperSolver.estimateMemory(n, true, true));
+                
+                int[][] solution = solver.solve();
+                
+                assertTrue(solver.isCompactCardinality());
+                assertTrue(solver.isLazyVisibility());
+                assertNotNull(solution, "Solution should exist for " + n + "x" + n);
+                assertValidSudoku(solution);
+                assertVisibilityConstraints(solution, getConstraints(data));
+            }
+        }
+    }
+    
+    /**
+     * Sets the clues n, n-1, ..., 1 on the top and left sides, 1, 2, ..., 2 on the bottom and right sides
+     * @return the clues
+     */
+    private int[][] setStaircaseConstraints(SkyscraperSolver solver) {
+        int n = solver.getSize();
+        int[][] constraints = new int[4][n];
+        for (int i = 0; i < n; i++) {
+            constraints[SkyscraperSolver.DIRECTION_UP][i] = n - i;
+            constraints[SkyscraperSolver.DIRECTION_LEFT][i] = n - i;
+            constraints[SkyscraperSolver.DIRECTION_DOWN][i] = i == 0 ? 1 : 2;
+            constraints[SkyscraperSolver.DIRECTION_RIGHT][i] = i == 0 ? 1 : 2;
+        }
+        for (int dir = 0; dir < 4; dir++) {
+            for (int i = 0; i < n; i++) {
+                solver.setVisibilityConstraint(dir, i, constraints[dir][i]);
+            }
+        }
+        return constraints;
+    }
+    
     /**
      * Validates that a solution is a valid Sudoku:
      * - Each row contains each value exactly once
      * - Each column contains each value exactly once
      */
+    private int[][] getConstraints(InputData data) {
+        int[][] constraints = new int[4][];
+        constraints[SkyscraperSolver.DIRECTION_UP] = data.up();
+        constraints[SkyscraperSolver.DIRECTION_DOWN] = data.down();
+        constraints[SkyscraperSolver.DIRECTION_LEFT] = data.left();
+        constraints[SkyscraperSolver.DIRECTION_RIGHT] = data.right();
+        return constraints;
+    }
+    
     private void assertValidSudoku(int[][] solution) {
         int n = solution.length;
         
@@ -0,0 +1,66 @@
+package com.fathzer.skycrapper;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Map;
+import java.util.Properties;
+
+import org.junit.jupiter.api.Test;
+import org.sat4j.specs.ContradictionException;
+import org.sat4j.specs.TimeoutException;
+
+class SolverProfileTest {
+
+    @Test
+    void testParse() {
+        assertEquals(SolverProfile.DEFAULT, SolverProfile.parse("default"));
+        final SolverProfile profile = SolverProfile.parse("luby-restarts+activity-deletion+positive-phase+random-walk-order+lazy+table+compact");
+        assertEquals(SolverProfile.Restarts.LUBY_RESTARTS, profile.restarts());
+        assertEquals(SolverProfile.Deletion.ACTIVITY_DELETION, profile.deletion());
+        assertEquals(SolverProfile.Phase.POSITIVE_PHASE, profile.phase());
+        assertEquals(SolverProfile.Order.RANDOM_WALK_ORDER, profile.order());
+        assertTrue(profile.lazy());
+        assertTrue(profile.table());
+        assertTrue(profile.compact());
+        assertThrows(IllegalArgumentException.class, () -> SolverProfile.parse("fast"));
+        assertThrows(IllegalArgumentException.class, () -> SolverProfile.parse("lazy+fast-restarts"));
+    }
+
+    @Test
+    void testToString() {
+        assertEquals("default", SolverProfile.DEFAULT.toString());
+        assertEquals("glucose-restarts", SolverProfile.getName(SolverProfile.Restarts.GLUCOSE_RESTARTS));
+        // SAT4J's default deletion strategy is LBD2
+        assertEquals("default", SolverProfile.parse("lbd2-deletion").toString());
+        assertEquals("lbd-deletion", SolverProfile.parse("lbd-deletion").toString());
+        // Default options are omitted, order is normalized
+        assertEquals("ema-restarts+table", SolverProfile.parse("table+rsat-phase+ema-restarts").toString());
+        final SolverProfile profile = SolverProfile.parse("no-restarts+lbd-deletion+last-learned-phase+lazy");
+        assertEquals(profile, SolverProfile.parse(profile.toString()));
+    }
+
+    @Test
+    void testParseProperties() {
+        final Properties properties = new Properties();
+        properties.setProperty("4", "lazy");
+        properties.setProperty(" 9 ", " minisat-restarts+table ");
+        final Map<Integer, SolverProfile> profiles = SolverProfile.parse(properties);
+        assertEquals(Map.of(4, SolverProfile.parse("lazy"), 9, SolverProfile.parse("minisat-restarts+table")), profiles);
+
+        properties.setProperty("big", "default");
+        assertThrows(IllegalArgumentException.class, () -> SolverProfile.parse(properties));
+    }
+
+    @Test
+    void testSolveWithProfiles() throws ContradictionException, TimeoutException {
+        final InputData data = new InputDataParser().parse("4 3 2 1 1 2 2 2 4 3 2 1 1 2 2 2");
+        final int[][] expected = Main.newSolver(data, SolverProfile.DEFAULT).solve();
+        for (SolverProfile.Restarts restarts : SolverProfile.Restarts.values()) {
+            for (SolverProfile.Phase phase : SolverProfile.Phase.values()) {
+                final SolverProfile profile = new SolverProfile(restarts, SolverProfile.Deletion.ACTIVITY_DELETION, phase,
+                        SolverProfile.Order.RANDOM_WALK_ORDER, true, true, true);
+                assertArrayEquals(expected, Main.newSolver(data, profile).solve(), profile.toString());
+            }
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.fathzer.skycrapper;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import org.junit.jupiter.api.Test;
+import org.sat4j.specs.ContradictionException;
+import org.sat4j.specs.TimeoutException;
+
+class TunerTest {
+
+    @Test
+    void testTune() throws ContradictionException, TimeoutException {
+        final InputDataParser parser = new InputDataParser();
+        final List<InputData> puzzles = List.of(parser.parse("4 3 2 1 1 2 2 2 4 3 2 1 1 2 2 2"), parser.parse("0 0 1 2 0 2 0 0 0 0 0 2 0 0 0 0"));
+        final ByteArrayOutputStream log = new ByteArrayOutputStream();
+        final SolverProfile profile = new Tuner(0, 1, new PrintStream(log, true, StandardCharsets.UTF_8)).tune(puzzles);
+        assertNotNull(profile);
+        final String logged = log.toString(StandardCharsets.UTF_8);
+        assertTrue(logged.contains("4x4: default "), logged);
+        assertTrue(logged.contains("4x4: best is " + profile), logged);
+    }
+
+    @Test
+    void testPrint() throws IOException {
+        final Map<Integer, SolverProfile> profiles = Map.of(4, SolverProfile.DEFAULT);
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Tuner.print(profiles, "corpus.txt", new PrintStream(out, true, StandardCharsets.UTF_8));
+        final Properties properties = new Properties();
+        properties.load(new StringReader(out.toString(StandardCharsets.UTF_8)));
+        assertEquals(profiles, SolverProfile.parse(properties));
+    }
+}